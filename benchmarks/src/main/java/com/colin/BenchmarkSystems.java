@@ -0,0 +1,20 @@
+package com.colin;
+
+//Builds the systems the benchmarks run against
+final class BenchmarkSystems {
+    //Every benchmark run generates the same layout
+    static final long SEED = 42;
+
+    private BenchmarkSystems() {
+    }
+
+    //A star at the origin and bodies - 1 planets in orbit around it
+    static StellarSystem generate(int bodies, GravityMode mode, boolean parallel) {
+        StellarSystem system = new StellarSystem(SEED);
+        system.addBody(new Star(0, 0, system.getRandom()));
+        system.genPlanets(bodies - 1, StellarSystem.DEFAULT_SPAWN_RANGE);
+        system.setGravityMode(mode);
+        system.setParallel(parallel);
+        return system;
+    }
+}
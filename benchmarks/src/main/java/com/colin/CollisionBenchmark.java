@@ -0,0 +1,41 @@
+package com.colin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//Collision pass on its own, without stepping the bodies
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int bodies;
+
+    private StellarSystem system;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        system = BenchmarkSystems.generate(bodies, GravityMode.DIRECT, false);
+    }
+
+    @Benchmark
+    public StellarSystem resolveCollisions() {
+        system.resolveCollisions();
+        return system;
+    }
+}
@@ -0,0 +1,59 @@
+package com.colin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//One pass of the direct summation kernels over a fixed system, scalar against the one picked at startup.
+//The fork adds the incubator vector module, so preferred is the vector kernel where the hardware has lanes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class GravityKernelBenchmark {
+    //Keeps bodies generated on top of each other finite
+    private static final double SOFTENING = 1;
+
+    @Param({"100", "1000", "10000"})
+    public int bodies;
+
+    @Param({"scalar", "preferred"})
+    public String kernel;
+
+    private GravityKernel gravityKernel;
+    private BodyStore store;
+
+    @Setup
+    public void setup() {
+        gravityKernel = kernel.equals("scalar") ? GravityKernel.SCALAR : GravityKernel.PREFERRED;
+        store = BenchmarkSystems.generate(bodies, GravityMode.DIRECT, false).getStore();
+    }
+
+    @Benchmark
+    public BodyStore accumulatePairs() {
+        store.clearAcceleration();
+        gravityKernel.accumulatePairs(store, SOFTENING * SOFTENING);
+        return store;
+    }
+
+    @Benchmark
+    public BodyStore accumulatePulls() {
+        store.clearAcceleration();
+        for(int i = 0; i < store.count; i++) {
+            gravityKernel.accumulatePulls(store, i, SOFTENING * SOFTENING);
+        }
+        return store;
+    }
+}
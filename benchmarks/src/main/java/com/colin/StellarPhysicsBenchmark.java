@@ -0,0 +1,69 @@
+package com.colin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import processing.core.PVector;
+
+import java.util.concurrent.TimeUnit;
+
+//Single pair kernels from StellarPhysics
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StellarPhysicsBenchmark {
+    private Star star;
+    private Planet planet;
+    private BodyStore store;
+    private PVector point;
+
+    @Setup
+    public void setup() {
+        StellarSystem system = new StellarSystem();
+        star = new Star(0, 0);
+        system.addBody(star);
+        planet = new Planet(300, -120, star);
+        system.addBody(planet);
+        store = system.getStore();
+        point = new PVector(12, 7);
+    }
+
+    @Benchmark
+    public PVector gravitationalPull() {
+        return StellarPhysics.gravitationalPull(planet, star);
+    }
+
+    @Benchmark
+    public double accumulatePull() {
+        store.ax[1] = 0;
+        StellarPhysics.accumulatePull(store, 1, 0);
+        return store.ax[1];
+    }
+
+    @Benchmark
+    public double accumulatePulls() {
+        store.ax[1] = 0;
+        StellarPhysics.accumulatePulls(store, 1, 0);
+        return store.ax[1];
+    }
+
+    @Benchmark
+    public boolean pointInsideBody() {
+        return StellarPhysics.pointInsideBody(point, star);
+    }
+
+    @Benchmark
+    public boolean pointInsideBodyPrimitive() {
+        return StellarPhysics.pointInsideBody(planet.getX(), planet.getY(), star);
+    }
+}
@@ -0,0 +1,49 @@
+package com.colin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//One full StellarSystem.update() per solver and body count. Direct summation at 100k bodies takes
+//minutes per step, narrow the run with -p bodies=... when only checking the smaller sizes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepBenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int bodies;
+
+    @Param({"DIRECT", "BARNES_HUT", "PARTICLE_MESH"})
+    public GravityMode solver;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private StellarSystem system;
+
+    //Collisions shrink the system as it runs, so every iteration starts from a fresh one
+    @Setup(Level.Iteration)
+    public void setup() {
+        system = BenchmarkSystems.generate(bodies, solver, parallel);
+    }
+
+    @Benchmark
+    public StellarSystem update() {
+        system.update();
+        return system;
+    }
+}
@@ -0,0 +1,253 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//Barnes-Hut quadtree over a set of point masses. The tree is rebuilt from scratch every step,
+//nodes live in flat arrays so a rebuild does not allocate once the arrays have grown to size.
+public class BarnesHutSolver implements ForceSolver {
+    static final double DEFAULT_THETA = 0.5;
+    private static final int MAX_DEPTH = 48;
+    private static final int EMPTY = -1;
+    private static final int INTERNAL = -2;
+
+    private final double gravity;
+    private double theta;
+    private double theta2;
+    private double softening2;
+
+    private int nodeCount;
+    private int[] child;
+    private int[] body;
+    private double[] centerX;
+    private double[] centerY;
+    private double[] halfSize;
+    private double[] mass;
+    private double[] massX;
+    private double[] massY;
+    private int[] next;
+    //Walks only read the tree, each thread gets its own traversal stack so bodies can be walked in parallel
+    private final ThreadLocal<int[]> stacks;
+
+    private double[] x;
+    private double[] y;
+    private double[] m;
+
+    BarnesHutSolver(double gravity) {
+        this(gravity, DEFAULT_THETA);
+    }
+
+    BarnesHutSolver(double gravity, double theta) {
+        this.gravity = gravity;
+        setTheta(theta);
+        this.stacks = ThreadLocal.withInitial(() -> new int[4 * (MAX_DEPTH + 1)]);
+        this.next = new int[16];
+        allocateNodes(64);
+    }
+
+    double getTheta() {
+        return theta;
+    }
+
+    //Opening angle, a node is treated as a single mass when its width over its distance is below theta
+    void setTheta(double theta) {
+        if(theta < 0) {
+            throw new IllegalArgumentException("Opening angle must not be negative: " + theta);
+        }
+        this.theta = theta;
+        this.theta2 = theta * theta;
+    }
+
+    //Plummer softening length in pixels, applied to cell and body interactions alike
+    void setSoftening(double softening) {
+        if(softening < 0) {
+            throw new IllegalArgumentException("Softening must not be negative: " + softening);
+        }
+        this.softening2 = softening * softening;
+    }
+
+    public void prepare(BodyStore store) {
+        build(store.x, store.y, store.mass, store.count);
+    }
+
+    public void accumulate(BodyStore store, int i) {
+        accumulate(i, store.ax, store.ay);
+    }
+
+    //Rebuilds the tree from the first count entries of the position and mass arrays
+    void build(double[] x, double[] y, double[] m, int count) {
+        this.x = x;
+        this.y = y;
+        this.m = m;
+        if(next.length < count) {
+            next = new int[Math.max(count, next.length * 2)];
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        nodeCount = 0;
+        if(count == 0) {
+            newNode(0, 0, 1);
+            return;
+        }
+        double half = Math.max(maxX - minX, maxY - minY) / 2 + 1;
+        newNode((minX + maxX) / 2, (minY + maxY) / 2, half);
+        for(int i = 0; i < count; i++) {
+            insert(i);
+        }
+        for(int n = 0; n < nodeCount; n++) {
+            if(mass[n] > 0) {
+                massX[n] /= mass[n];
+                massY[n] /= mass[n];
+            }
+        }
+    }
+
+    //Adds the acceleration the tree applies on body i to ax[i] and ay[i]
+    void accumulate(int i, double[] ax, double[] ay) {
+        double px = x[i];
+        double py = y[i];
+        double sumX = 0;
+        double sumY = 0;
+        int[] stack = stacks.get();
+        int top = 0;
+        stack[top++] = 0;
+        while(top > 0) {
+            int node = stack[--top];
+            int occupant = body[node];
+            if(occupant == INTERNAL) {
+                double dx = px - massX[node];
+                double dy = py - massY[node];
+                double d2 = dx * dx + dy * dy;
+                double size = halfSize[node] * 2;
+                boolean contains = Math.abs(px - centerX[node]) <= halfSize[node] && Math.abs(py - centerY[node]) <= halfSize[node];
+                if(!contains && size * size < theta2 * d2) {
+                    double inv = 1 / Math.sqrt(d2 + softening2);
+                    double a = -gravity * mass[node] * inv * inv * inv;
+                    sumX += a * dx;
+                    sumY += a * dy;
+                } else {
+                    for(int q = node * 4, end = q + 4; q < end; q++) {
+                        if(child[q] != 0) {
+                            stack[top++] = child[q];
+                        }
+                    }
+                }
+            } else {
+                for(int j = occupant; j >= 0; j = next[j]) {
+                    if(j != i) {
+                        double dx = px - x[j];
+                        double dy = py - y[j];
+                        double d2 = dx * dx + dy * dy + softening2;
+                        if(d2 > 0) {
+                            double inv = 1 / Math.sqrt(d2);
+                            double a = -gravity * m[j] * inv * inv * inv;
+                            sumX += a * dx;
+                            sumY += a * dy;
+                        }
+                    }
+                }
+            }
+        }
+        ax[i] += sumX;
+        ay[i] += sumY;
+    }
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    private void insert(int i) {
+        int node = 0;
+        int depth = 0;
+        while(true) {
+            int occupant = body[node];
+            if(occupant == EMPTY) {
+                body[node] = i;
+                next[i] = EMPTY;
+                addMass(node, i);
+                return;
+            }
+            if(occupant >= 0 && depth < MAX_DEPTH) {
+                body[node] = INTERNAL;
+                int c = childFor(node, x[occupant], y[occupant]);
+                body[c] = occupant;
+                addMass(c, occupant);
+                occupant = INTERNAL;
+            }
+            addMass(node, i);
+            if(occupant == INTERNAL) {
+                node = childFor(node, x[i], y[i]);
+                depth++;
+            } else {
+                //Coincident bodies past the depth limit share one leaf
+                next[i] = occupant;
+                body[node] = i;
+                return;
+            }
+        }
+    }
+
+    private void addMass(int node, int i) {
+        mass[node] += m[i];
+        massX[node] += m[i] * x[i];
+        massY[node] += m[i] * y[i];
+    }
+
+    private int childFor(int node, double px, double py) {
+        int quadrant = (px >= centerX[node] ? 1 : 0) | (py >= centerY[node] ? 2 : 0);
+        int slot = node * 4 + quadrant;
+        if(child[slot] == 0) {
+            double half = halfSize[node] / 2;
+            double cx = centerX[node] + ((quadrant & 1) != 0 ? half : -half);
+            double cy = centerY[node] + ((quadrant & 2) != 0 ? half : -half);
+            int created = newNode(cx, cy, half);
+            child[slot] = created;
+        }
+        return child[slot];
+    }
+
+    private int newNode(double cx, double cy, double half) {
+        if(nodeCount == body.length) {
+            allocateNodes(body.length * 2);
+        }
+        int n = nodeCount++;
+        Arrays.fill(child, n * 4, n * 4 + 4, 0);
+        body[n] = EMPTY;
+        centerX[n] = cx;
+        centerY[n] = cy;
+        halfSize[n] = half;
+        mass[n] = 0;
+        massX[n] = 0;
+        massY[n] = 0;
+        return n;
+    }
+
+    private void allocateNodes(int capacity) {
+        if(body == null) {
+            child = new int[capacity * 4];
+            body = new int[capacity];
+            centerX = new double[capacity];
+            centerY = new double[capacity];
+            halfSize = new double[capacity];
+            mass = new double[capacity];
+            massX = new double[capacity];
+            massY = new double[capacity];
+        } else {
+            child = Arrays.copyOf(child, capacity * 4);
+            body = Arrays.copyOf(body, capacity);
+            centerX = Arrays.copyOf(centerX, capacity);
+            centerY = Arrays.copyOf(centerY, capacity);
+            halfSize = Arrays.copyOf(halfSize, capacity);
+            mass = Arrays.copyOf(mass, capacity);
+            massX = Arrays.copyOf(massX, capacity);
+            massY = Arrays.copyOf(massY, capacity);
+        }
+    }
+}
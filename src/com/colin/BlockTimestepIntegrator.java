@@ -0,0 +1,107 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//Kick-drift-kick leapfrog with individual power-of-two timesteps. A body at level L steps with dt / 2^L,
+//every body drifts on the finest active level but forces are only recomputed for bodies whose step ends,
+//so distant slow bodies cost a fraction of the force evaluations of the inner ones.
+//Levels come from the acceleration criterion dt_i = sqrt(2 * accuracy * lengthScale / |a_i|) and are
+//re-evaluated at the end of each body's own step, moving finer at once and coarser one level at a time.
+class BlockTimestepIntegrator implements Integrator {
+    static final int MAX_LEVEL = 12;
+    static final double DEFAULT_ACCURACY = 0.025;
+    static final double DEFAULT_LENGTH_SCALE = 1;
+
+    private double accuracy;
+    private double lengthScale;
+    private int[] active = new int[0];
+
+    BlockTimestepIntegrator() {
+        this(DEFAULT_ACCURACY, DEFAULT_LENGTH_SCALE);
+    }
+
+    BlockTimestepIntegrator(double accuracy, double lengthScale) {
+        this.accuracy = accuracy;
+        this.lengthScale = lengthScale;
+    }
+
+    public void step(BodyStore bodies, StellarSystem system, double dt) {
+        if(active.length < bodies.count) {
+            active = Arrays.copyOf(active, Math.max(bodies.count, active.length * 2));
+        }
+        int maxLevel = 0;
+        for(int i = 0; i < bodies.count; i++) {
+            maxLevel = Math.max(maxLevel, bodies.level[i]);
+        }
+        int ticks = 1 << maxLevel;
+        double tick = dt / ticks;
+
+        for(int t = 0; t < ticks; t++) {
+            for(int i = 0; i < bodies.count; i++) {
+                int stride = 1 << (maxLevel - bodies.level[i]);
+                if(t % stride == 0) {
+                    double half = tick * stride / 2;
+                    bodies.vx[i] += bodies.ax[i] * half;
+                    bodies.vy[i] += bodies.ay[i] * half;
+                }
+                bodies.x[i] += bodies.vx[i] * tick;
+                bodies.y[i] += bodies.vy[i] * tick;
+            }
+
+            int count = 0;
+            for(int i = 0; i < bodies.count; i++) {
+                if((t + 1) % (1 << (maxLevel - bodies.level[i])) == 0) {
+                    active[count++] = i;
+                }
+            }
+            system.computeAccelerations(active, count);
+            for(int k = 0; k < count; k++) {
+                int i = active[k];
+                int stride = 1 << (maxLevel - bodies.level[i]);
+                double half = tick * stride / 2;
+                bodies.vx[i] += bodies.ax[i] * half;
+                bodies.vy[i] += bodies.ay[i] * half;
+                bodies.level[i] = (byte)nextLevel(bodies, i, dt, maxLevel, t + 1);
+            }
+        }
+    }
+
+    private int nextLevel(BodyStore bodies, int i, double dt, int maxLevel, int tick) {
+        int current = bodies.level[i];
+        int wanted = levelFor(bodies, i, dt);
+        if(wanted > current) {
+            //Finer steps always line up with the current boundary, going past the finest level of this step waits for the end of it
+            return tick == 1 << maxLevel ? wanted : Math.min(wanted, maxLevel);
+        }
+        if(wanted < current && current > 0 && tick % (1 << (maxLevel - current + 1)) == 0) {
+            return current - 1;
+        }
+        return current;
+    }
+
+    //Level whose timestep is the largest power-of-two fraction of dt within the accuracy criterion
+    private int levelFor(BodyStore bodies, int i, double dt) {
+        double a = Math.hypot(bodies.ax[i], bodies.ay[i]);
+        if(a == 0) {
+            return 0;
+        }
+        double wanted = Math.sqrt(2 * accuracy * lengthScale / a);
+        int level = 0;
+        while(level < MAX_LEVEL && dt / (1 << level) > wanted) {
+            level++;
+        }
+        return level;
+    }
+
+    double getAccuracy() {
+        return accuracy;
+    }
+
+    void setAccuracy(double accuracy) {
+        this.accuracy = accuracy;
+    }
+
+    public String toString() {
+        return "Block Leapfrog";
+    }
+}
@@ -0,0 +1,158 @@
+package com.colin;
+
+import processing.core.PVector;
+
+//View onto a slot of a BodyStore, a body not yet added to a system owns a single slot store
+public class Body {
+    BodyStore store;
+    int slot;
+    private double density;
+    private int pixelRadius;
+    private int chromaticity;
+    private String info;
+
+    Body() {
+        new BodyStore(1).add(this);
+        this.density = 0;
+        this.pixelRadius = 1;
+        this.chromaticity = 255;
+    }
+
+    Body(double mass, double density, double radius, PVector vel, PVector pos) {
+        new BodyStore(1).add(this);
+        setMass(mass);
+        this.density = density;
+        setRadius(radius);
+        setVel(vel);
+        setPos(pos);
+        this.chromaticity = 100;
+        calcPixelRadius();
+    }
+
+    void update() {
+        applyVelocity();
+    }
+
+    double getMass() {
+        return store.mass[slot];
+    }
+
+    void setMass(double mass) {
+        store.mass[slot] = mass;
+        invalidateInfo();
+    }
+
+    double getDensity() {
+        return density;
+    }
+
+    void calcDensity() {
+        double volume = (4 / 3) * Math.PI * Math.pow((float)getRadius() * 100, 3);
+        setDensity(getMass() * 1000 / volume);
+    }
+
+    void setDensity(double density) {
+        this.density = density;
+        invalidateInfo();
+    }
+
+    double getRadius() {
+        return store.radius[slot];
+    }
+
+    void setRadius(double radius) {
+        store.radius[slot] = radius;
+        invalidateInfo();
+    }
+
+    int getPixelRadius() {
+        return pixelRadius;
+    }
+
+    void calcPixelRadius() {
+        this.pixelRadius = StellarPhysics.pixelUnit((float)getRadius());
+    }
+
+    double getX() {
+        return store.x[slot];
+    }
+
+    double getY() {
+        return store.y[slot];
+    }
+
+    //Returns a copy of the position, use getX/getY on hot paths
+    PVector getPos() {
+        return new PVector((float)store.x[slot], (float)store.y[slot]);
+    }
+
+    void setPos(PVector pos) {
+        store.x[slot] = pos.x;
+        store.y[slot] = pos.y;
+    }
+
+    void setPos(double x, double y) {
+        store.x[slot] = x;
+        store.y[slot] = y;
+    }
+
+    double getVelX() {
+        return store.vx[slot];
+    }
+
+    double getVelY() {
+        return store.vy[slot];
+    }
+
+    //Returns a copy of the velocity
+    PVector getVel() {
+        return new PVector((float)store.vx[slot], (float)store.vy[slot]);
+    }
+
+    void setVel(PVector vel) {
+        store.vx[slot] = vel.x;
+        store.vy[slot] = vel.y;
+    }
+
+    void setVel(double vx, double vy) {
+        store.vx[slot] = vx;
+        store.vy[slot] = vy;
+    }
+
+    void modVel(PVector delta) {
+        store.vx[slot] += delta.x;
+        store.vy[slot] += delta.y;
+    }
+
+    private void applyVelocity() {
+        store.x[slot] += store.vx[slot];
+        store.y[slot] += store.vy[slot];
+    }
+
+    int getChroma() {
+        return chromaticity;
+    }
+
+    void setChroma(int chromaticity) {
+        this.chromaticity = chromaticity;
+    }
+
+    //toString kept for the GUI, so a body that does not change is only formatted once. Only the thread stepping
+    //the system may call it, the window reads the copy a Snapshot takes and never the body itself.
+    String getInfo() {
+        String text = info;
+        if(text == null) {
+            text = toString();
+            info = text;
+        }
+        return text;
+    }
+
+    void invalidateInfo() {
+        info = null;
+    }
+
+    public String toString() {
+        return "Mass(kg): " + getMass() + "     Density(g/m3): " + density + "     Radius(km): " + getRadius();
+    }
+}
@@ -0,0 +1,184 @@
+package com.colin;
+
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+//Draws all bodies in one pass through a Camera. Each body is drawn by the size it is projected to: a filled
+//circle above MAX_SPRITE_RADIUS pixels, a sprite above POINT_RADIUS, a point up to it, and where SPLAT_COUNT
+//or more points fall in the same SPLAT_CELL pixel cell a single splat of their average colour stands in for
+//all of them. Bodies outside the target are skipped, so the drawing cost follows what is visible at any zoom
+//rather than the body count.
+public class BodyRenderer {
+    static final int POINT_RADIUS = 2;
+    //Sprites are drawn unscaled, scaling one in Java2D costs far more than drawing it, so bodies larger
+    //than this are circles rather than sprites too large to cache
+    static final int MAX_SPRITE_RADIUS = 128;
+    //Sprites for a new zoom are drawn at most this many a frame, bodies still without one meanwhile
+    //are drawn as circles
+    static final int SPRITES_PER_FRAME = 32;
+    static final int SPLAT_CELL = 4;
+    static final int SPLAT_COUNT = 3;
+
+    private final SpriteCache sprites;
+    private int visible;
+    private int splats;
+
+    //Per body, its screen position and the splat cell it was binned into, -1 if it is not drawn as a point
+    private float[] screenX = new float[0];
+    private float[] screenY = new float[0];
+    private int[] pointCell = new int[0];
+    //Per cell, the points binned into it and the sum of their colour channels. Only the cells listed in
+    //touched are non-zero between frames.
+    private int columns;
+    private int rows;
+    private int[] cellCount = new int[0];
+    private int[] cellRed = new int[0];
+    private int[] cellGreen = new int[0];
+    private int[] cellBlue = new int[0];
+    private int[] touched = new int[0];
+
+    BodyRenderer(SpriteCache sprites) {
+        this.sprites = sprites;
+    }
+
+    void render(PGraphics g, Snapshot bodies, Camera camera) {
+        visible = 0;
+        splats = 0;
+        ensureCapacity(bodies.count);
+        ensureCells(g.width, g.height);
+        float zoom = camera.getZoom();
+        int touchedCount = 0;
+        int created = 0;
+        g.imageMode(PConstants.CENTER);
+        g.ellipseMode(PConstants.RADIUS);
+        for(int i = 0; i < bodies.count; i++) {
+            float x = camera.screenX(bodies.x[i]);
+            float y = camera.screenY(bodies.y[i]);
+            float radius = bodies.pixelRadius[i] * zoom;
+            screenX[i] = x;
+            screenY[i] = y;
+            pointCell[i] = -1;
+            if(radius > POINT_RADIUS) {
+                if(inView(g, x, y, radius * 2)) {
+                    int kind = bodies.views[i] instanceof Star ? SpriteCache.STAR : SpriteCache.BODY;
+                    int spriteRadius = Math.round(radius);
+                    PGraphics sprite = null;
+                    if(spriteRadius <= MAX_SPRITE_RADIUS) {
+                        sprite = sprites.getCached(spriteRadius, bodies.chroma[i], kind);
+                        if(sprite == null && created < SPRITES_PER_FRAME) {
+                            sprite = sprites.get(spriteRadius, bodies.chroma[i], kind);
+                            created++;
+                        }
+                    }
+                    if(sprite != null) {
+                        g.image(sprite, x, y);
+                    } else {
+                        g.noStroke();
+                        g.fill(bodies.chroma[i]);
+                        g.ellipse(x, y, radius, radius);
+                    }
+                    visible++;
+                }
+            } else if(inView(g, x, y, Math.max(radius, 1))) {
+                int column = Math.max(0, Math.min((int)(x / SPLAT_CELL), columns - 1));
+                int row = Math.max(0, Math.min((int)(y / SPLAT_CELL), rows - 1));
+                int cell = row * columns + column;
+                if(cellCount[cell]++ == 0) {
+                    touched[touchedCount++] = cell;
+                }
+                int chroma = bodies.chroma[i];
+                cellRed[cell] += (chroma >> 16) & 0xFF;
+                cellGreen[cell] += (chroma >> 8) & 0xFF;
+                cellBlue[cell] += chroma & 0xFF;
+                pointCell[i] = cell;
+                visible++;
+            }
+        }
+
+        //Points in sparse cells as small squares, a filled square costs Java2D a fraction of a round point
+        g.noStroke();
+        for(int i = 0; i < bodies.count; i++) {
+            int cell = pointCell[i];
+            if(cell >= 0 && cellCount[cell] < SPLAT_COUNT) {
+                int size = Math.max(Math.round(bodies.pixelRadius[i] * zoom), 1);
+                g.fill(bodies.chroma[i]);
+                g.rect(screenX[i] - size, screenY[i] - size, size * 2, size * 2);
+            }
+        }
+
+        //Dense cells as one square each, more opaque the more bodies they hold
+        for(int t = 0; t < touchedCount; t++) {
+            int cell = touched[t];
+            int count = cellCount[cell];
+            if(count >= SPLAT_COUNT) {
+                g.fill(cellRed[cell] / count, cellGreen[cell] / count, cellBlue[cell] / count, Math.min(255, 128 + 4 * count));
+                g.rect((cell % columns) * SPLAT_CELL, (cell / columns) * SPLAT_CELL, SPLAT_CELL, SPLAT_CELL);
+                splats++;
+            }
+            cellCount[cell] = 0;
+            cellRed[cell] = 0;
+            cellGreen[cell] = 0;
+            cellBlue[cell] = 0;
+        }
+    }
+
+    //Draws each body's trail as copied into the snapshot as a polyline ending at the body
+    void renderTrails(PGraphics g, Snapshot bodies, Camera camera) {
+        g.pushMatrix();
+        camera.apply(g);
+        g.noFill();
+        g.strokeWeight(1 / camera.getZoom());
+        for(int i = 0; i < bodies.trailCount; i++) {
+            int start = bodies.trailStart[i];
+            int end = bodies.trailStart[i + 1];
+            if(end == start) {
+                continue;
+            }
+            g.stroke(bodies.chroma[i], 110);
+            g.beginShape();
+            for(int p = start; p < end; p++) {
+                g.vertex(bodies.trailX[p], bodies.trailY[p]);
+            }
+            g.vertex(bodies.x[i], bodies.y[i]);
+            g.endShape();
+        }
+        g.popMatrix();
+    }
+
+    //Number of bodies drawn by the last render call, including those drawn as part of a splat
+    int getVisible() {
+        return visible;
+    }
+
+    //Number of splats drawn by the last render call
+    int getSplats() {
+        return splats;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(pointCell.length < capacity) {
+            int size = Math.max(capacity, pointCell.length * 2);
+            screenX = new float[size];
+            screenY = new float[size];
+            pointCell = new int[size];
+        }
+    }
+
+    private void ensureCells(int width, int height) {
+        int c = (width + SPLAT_CELL - 1) / SPLAT_CELL;
+        int r = (height + SPLAT_CELL - 1) / SPLAT_CELL;
+        if(c != columns || r != rows) {
+            columns = c;
+            rows = r;
+            cellCount = new int[c * r];
+            cellRed = new int[c * r];
+            cellGreen = new int[c * r];
+            cellBlue = new int[c * r];
+            touched = new int[c * r];
+        }
+    }
+
+    private static boolean inView(PGraphics g, double screenX, double screenY, double extent) {
+        return screenX + extent >= 0 && screenX - extent <= g.width && screenY + extent >= 0 && screenY - extent <= g.height;
+    }
+}
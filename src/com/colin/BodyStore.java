@@ -0,0 +1,135 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//Structure-of-arrays storage for body state. Bodies are thin views holding a slot into a store,
+//the physics passes run over the primitive arrays directly so a step does not allocate.
+public class BodyStore {
+    double[] x;
+    double[] y;
+    double[] vx;
+    double[] vy;
+    double[] ax;
+    double[] ay;
+    double[] mass;
+    double[] radius;
+    //Block timestep level, a body at level L steps with timestep / 2^L
+    byte[] level;
+    Body[] views;
+    int count;
+
+    BodyStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        ax = new double[capacity];
+        ay = new double[capacity];
+        mass = new double[capacity];
+        radius = new double[capacity];
+        level = new byte[capacity];
+        views = new Body[capacity];
+    }
+
+    int size() {
+        return count;
+    }
+
+    Body get(int slot) {
+        return views[slot];
+    }
+
+    //Appends a slot for the view, copying its current state if it is already bound to a store
+    int add(Body view) {
+        ensureCapacity(count + 1);
+        int slot = count++;
+        BodyStore from = view.store;
+        if(from != null) {
+            int s = view.slot;
+            x[slot] = from.x[s];
+            y[slot] = from.y[s];
+            vx[slot] = from.vx[s];
+            vy[slot] = from.vy[s];
+            ax[slot] = from.ax[s];
+            ay[slot] = from.ay[s];
+            mass[slot] = from.mass[s];
+            radius[slot] = from.radius[s];
+            level[slot] = from.level[s];
+        }
+        views[slot] = view;
+        view.store = this;
+        view.slot = slot;
+        return slot;
+    }
+
+    //Removes the slot keeping the order of the remaining bodies, the removed view keeps a private copy of its state
+    void remove(int slot) {
+        new BodyStore(1).add(views[slot]);
+        int tail = count - slot - 1;
+        System.arraycopy(x, slot + 1, x, slot, tail);
+        System.arraycopy(y, slot + 1, y, slot, tail);
+        System.arraycopy(vx, slot + 1, vx, slot, tail);
+        System.arraycopy(vy, slot + 1, vy, slot, tail);
+        System.arraycopy(ax, slot + 1, ax, slot, tail);
+        System.arraycopy(ay, slot + 1, ay, slot, tail);
+        System.arraycopy(mass, slot + 1, mass, slot, tail);
+        System.arraycopy(radius, slot + 1, radius, slot, tail);
+        System.arraycopy(level, slot + 1, level, slot, tail);
+        System.arraycopy(views, slot + 1, views, slot, tail);
+        count--;
+        views[count] = null;
+        for(int i = slot; i < count; i++) {
+            views[i].slot = i;
+        }
+    }
+
+    //Drops every flagged slot in one pass keeping the order of the rest, removed views keep a private copy of their state
+    void compact(boolean[] removed) {
+        int kept = 0;
+        for(int i = 0; i < count; i++) {
+            if(removed[i]) {
+                new BodyStore(1).add(views[i]);
+                continue;
+            }
+            if(kept != i) {
+                x[kept] = x[i];
+                y[kept] = y[i];
+                vx[kept] = vx[i];
+                vy[kept] = vy[i];
+                ax[kept] = ax[i];
+                ay[kept] = ay[i];
+                mass[kept] = mass[i];
+                radius[kept] = radius[i];
+                level[kept] = level[i];
+                views[kept] = views[i];
+                views[kept].slot = kept;
+            }
+            kept++;
+        }
+        Arrays.fill(views, kept, count, null);
+        count = kept;
+    }
+
+    void clearAcceleration() {
+        Arrays.fill(ax, 0, count, 0);
+        Arrays.fill(ay, 0, count, 0);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= x.length) {
+            return;
+        }
+        capacity = Math.max(capacity, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        ax = Arrays.copyOf(ax, capacity);
+        ay = Arrays.copyOf(ay, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        level = Arrays.copyOf(level, capacity);
+        views = Arrays.copyOf(views, capacity);
+    }
+}
@@ -0,0 +1,89 @@
+package com.colin;
+
+import processing.core.PGraphics;
+
+//Maps system coordinates to a view of the given size. The point at centerX, centerY of the system is drawn
+//in the middle of the view and distances are multiplied by zoom, so at zoom 1 one system pixel is one screen
+//pixel as bodies were always drawn.
+public class Camera {
+    static final float MIN_ZOOM = 1 / 64F;
+    static final float MAX_ZOOM = 64;
+
+    private final int width;
+    private final int height;
+    private double centerX;
+    private double centerY;
+    private float zoom = 1;
+
+    Camera(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    float screenX(double x) {
+        return (float)((x - centerX) * zoom) + width / 2F;
+    }
+
+    float screenY(double y) {
+        return (float)((y - centerY) * zoom) + height / 2F;
+    }
+
+    double worldX(double screenX) {
+        return (screenX - width / 2F) / zoom + centerX;
+    }
+
+    double worldY(double screenY) {
+        return (screenY - height / 2F) / zoom + centerY;
+    }
+
+    //Sets the transform of the target so drawing in system coordinates lands where screenX, screenY put it,
+    //for shapes like trails that are cheaper to transform as a whole than point by point
+    void apply(PGraphics g) {
+        g.translate((float)(width / 2F - centerX * zoom), (float)(height / 2F - centerY * zoom));
+        g.scale(zoom);
+    }
+
+    //Moves the view by a distance in screen pixels
+    void pan(float dx, float dy) {
+        centerX -= dx / zoom;
+        centerY -= dy / zoom;
+    }
+
+    //Zooms by factor keeping the system point under screenX, screenY where it is
+    void zoomAt(float screenX, float screenY, float factor) {
+        double x = worldX(screenX);
+        double y = worldY(screenY);
+        zoom = Math.max(MIN_ZOOM, Math.min(zoom * factor, MAX_ZOOM));
+        centerX = x - (screenX - width / 2F) / zoom;
+        centerY = y - (screenY - height / 2F) / zoom;
+    }
+
+    void reset() {
+        centerX = 0;
+        centerY = 0;
+        zoom = 1;
+    }
+
+    //Looks at what the other camera looks at, keeping this camera's view size
+    void set(Camera other) {
+        centerX = other.centerX;
+        centerY = other.centerY;
+        zoom = other.zoom;
+    }
+
+    void setZoom(float zoom) {
+        this.zoom = Math.max(MIN_ZOOM, Math.min(zoom, MAX_ZOOM));
+    }
+
+    float getZoom() {
+        return zoom;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,229 @@
+package com.colin;
+
+import processing.core.PVector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Versioned binary checkpoint of a system: a HEADER_BYTES header followed by one RECORD_BYTES record per body,
+//little endian, written and read through a memory mapped FileChannel.
+//
+//Header: magic, version (short), record size (short), body count (int), steps (long), timestep (double),
+//gravity mode (byte), integrator (byte), zero padding.
+//Record: kind, classification, block level (bytes), padding byte, chroma (int), then mass, radius, density,
+//x, y, vx, vy and temperature (doubles, temperature is 0 for anything but stars).
+//
+//capture() encodes the system into memory on the thread stepping it, which only costs a copy, and write()
+//can then run on any thread so saving does not hold up the simulation. Integrator settings beyond the kind
+//are not kept, a restored system starts from its default accuracy and recomputes accelerations.
+public class Checkpoint {
+    static final int MAGIC = 0x524C5453;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 72;
+    static final byte BODY = 0;
+    static final byte PLANET = 1;
+    static final byte STAR = 2;
+    //Integrator codes run from 0 to INTEGRATORS - 1, see integratorCode
+    static final int INTEGRATORS = 5;
+    //Records mapped at a time, keeps every mapping well under the 2GB limit of a single buffer
+    private static final int RECORDS_PER_MAP = 1 << 20;
+
+    private final ByteBuffer data;
+    private final int count;
+
+    private Checkpoint(ByteBuffer data) throws IOException {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        if(data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a checkpoint");
+        }
+        if(data.getShort(4) != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + data.getShort(4));
+        }
+        if(data.getShort(6) != RECORD_BYTES) {
+            throw new IOException("Unexpected record size " + data.getShort(6));
+        }
+        this.count = data.getInt(8);
+        if(count < 0 || (long)HEADER_BYTES + (long)count * RECORD_BYTES > data.limit()) {
+            throw new IOException("Checkpoint is truncated");
+        }
+        //Checked here so a bad file fails before restore has cleared the system
+        if(data.get(28) < 0 || data.get(28) >= GravityMode.values().length) {
+            throw new IOException("Unknown gravity mode " + data.get(28));
+        }
+        if(data.get(29) < 0 || data.get(29) >= INTEGRATORS) {
+            throw new IOException("Unknown integrator " + data.get(29));
+        }
+        if(!(data.getDouble(20) > 0)) {
+            throw new IOException("Invalid timestep " + data.getDouble(20));
+        }
+    }
+
+    //Encodes the system, must be called from the thread stepping it
+    static Checkpoint capture(StellarSystem system) {
+        BodyStore bodies = system.getStore();
+        long size = HEADER_BYTES + (long)bodies.count * RECORD_BYTES;
+        if(size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many bodies for a checkpoint: " + bodies.count);
+        }
+        ByteBuffer data = ByteBuffer.allocate((int)size).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(MAGIC);
+        data.putShort(VERSION);
+        data.putShort((short)RECORD_BYTES);
+        data.putInt(bodies.count);
+        data.putLong(system.getSteps());
+        data.putDouble(system.getTimestep());
+        data.put((byte)system.getGravityMode().ordinal());
+        data.put(integratorCode(system.getIntegrator()));
+        data.position(HEADER_BYTES);
+        for(int i = 0; i < bodies.count; i++) {
+            Body body = bodies.views[i];
+            data.put(kindOf(body));
+            data.put(classificationOf(body));
+            data.put(bodies.level[i]);
+            data.put((byte)0);
+            data.putInt(body.getChroma());
+            data.putDouble(bodies.mass[i]);
+            data.putDouble(bodies.radius[i]);
+            data.putDouble(body.getDensity());
+            data.putDouble(bodies.x[i]);
+            data.putDouble(bodies.y[i]);
+            data.putDouble(bodies.vx[i]);
+            data.putDouble(bodies.vy[i]);
+            data.putDouble(tempOf(body));
+        }
+        data.flip();
+        try {
+            return new Checkpoint(data);
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //Maps the file and checks its header, the records are read by restore
+    static Checkpoint read(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Checkpoint(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    //Writes the checkpoint to the file, replacing it
+    void write(Path path) throws IOException {
+        long size = HEADER_BYTES + (long)count * RECORD_BYTES;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer source = data.duplicate();
+            long mapped = 0;
+            while(mapped < size) {
+                long length = Math.min(size - mapped, mapped == 0 ? HEADER_BYTES + (long)RECORDS_PER_MAP * RECORD_BYTES : (long)RECORDS_PER_MAP * RECORD_BYTES);
+                MappedByteBuffer target = channel.map(FileChannel.MapMode.READ_WRITE, mapped, length);
+                source.limit((int)(mapped + length)).position((int)mapped);
+                target.put(source);
+                target.force();
+                mapped += length;
+            }
+        }
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getSteps() {
+        return data.getLong(12);
+    }
+
+    //Replaces the bodies and settings of the system with the checkpoint's, must be called from the thread stepping it
+    void restore(StellarSystem system) {
+        system.clear();
+        system.setSteps(getSteps());
+        system.setTimestep(data.getDouble(20));
+        system.setGravityMode(GravityMode.values()[data.get(28)]);
+        system.setIntegrator(integrator(data.get(29)));
+        for(int i = 0; i < count; i++) {
+            int r = HEADER_BYTES + i * RECORD_BYTES;
+            Body body = newBody(data.get(r), data.get(r + 1), data.getInt(r + 4), data.getDouble(r + 8), data.getDouble(r + 16), data.getDouble(r + 24), data.getDouble(r + 64));
+            body.setPos(data.getDouble(r + 32), data.getDouble(r + 40));
+            body.setVel(data.getDouble(r + 48), data.getDouble(r + 56));
+            body.store.level[body.slot] = data.get(r + 2);
+            system.addBody(body);
+        }
+    }
+
+    static byte kindOf(Body body) {
+        return body instanceof Star ? STAR : body instanceof Planet ? PLANET : BODY;
+    }
+
+    static byte classificationOf(Body body) {
+        if(body instanceof Star) {
+            return (byte)((Star)body).getClassification();
+        } else if(body instanceof Planet) {
+            return Planet.classificationCode(((Planet)body).getClassification());
+        }
+        return 0;
+    }
+
+    static double tempOf(Body body) {
+        return body instanceof Star ? ((Star)body).getTempK() : 0;
+    }
+
+    //Rebuilds a detached body from its stored properties without rolling a new classification
+    static Body newBody(byte kind, byte classification, int chroma, double mass, double radius, double density, double tempK) {
+        Body body;
+        if(kind == STAR) {
+            Star star = new Star(mass, density, (float)radius, new PVector(), new PVector(), tempK);
+            star.setClassification((char)classification);
+            body = star;
+        } else if(kind == PLANET) {
+            Planet planet = new Planet(mass, density, (float)radius, new PVector(), new PVector());
+            planet.setClassification(Planet.classificationName(classification));
+            body = planet;
+        } else {
+            body = new Body(mass, density, radius, new PVector(), new PVector());
+        }
+        body.setRadius(radius);
+        body.calcPixelRadius();
+        body.setChroma(chroma);
+        return body;
+    }
+
+    private static byte integratorCode(Integrator integrator) {
+        if(integrator instanceof LegacyIntegrator) {
+            return 0;
+        } else if(integrator instanceof VelocityVerletIntegrator) {
+            return 2;
+        } else if(integrator instanceof BlockTimestepIntegrator) {
+            return 3;
+        } else if(integrator instanceof KeplerIntegrator) {
+            return 4;
+        }
+        return 1;
+    }
+
+    private static Integrator integrator(byte code) {
+        switch(code) {
+            case 0: {
+                return new LegacyIntegrator();
+            }
+            case 2: {
+                return new VelocityVerletIntegrator();
+            }
+            case 3: {
+                return new BlockTimestepIntegrator();
+            }
+            case 1: {
+                return new LeapfrogIntegrator();
+            }
+            case 4: {
+                return new KeplerIntegrator();
+            }
+            default : {
+                throw new IllegalArgumentException("Unknown integrator " + code);
+            }
+        }
+    }
+}
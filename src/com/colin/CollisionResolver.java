@@ -0,0 +1,249 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//Finds and merges colliding bodies once per step. The broad phase is a spatial hash rebuilt every call,
+//each body is entered into every cell its disk overlaps so a lookup of a centre's cell finds every body
+//that can contain it. Cells are sized from the mean radius, so a body spanning more than LARGE_CELLS cells
+//across, such as a star among planets, is kept in a separate list and checked against every centre instead
+//of filling the hash with its cells. The narrow phase is the pointInsideBody test, so as before a body
+//collides when its centre is inside another body. All pairs are merged inelastically, conserving mass and
+//momentum, and the store is compacted once at the end.
+class CollisionResolver {
+    private static final int EMPTY = Integer.MIN_VALUE;
+    static final int LARGE_CELLS = 8;
+
+    private double cellSize;
+    private int[] cellX = new int[0];
+    private int[] cellY = new int[0];
+    private int[] cellHead = new int[0];
+    private int tableMask;
+    private int[] entryBody = new int[0];
+    private int[] entryNext = new int[0];
+    private int entryCount;
+    private int[] large = new int[0];
+    private int largeCount;
+
+    private int[] pairA = new int[0];
+    private int[] pairB = new int[0];
+    private int pairCount;
+    private int[] parent = new int[0];
+    private boolean[] removed = new boolean[0];
+
+    //Merges every colliding pair, calling back for each absorbed body. Returns the number of bodies removed.
+    int resolve(BodyStore bodies, MergeListener listener) {
+        int count = bodies.count;
+        if(count < 2) {
+            return 0;
+        }
+        buildHash(bodies);
+        findPairs(bodies);
+        if(pairCount == 0) {
+            return 0;
+        }
+
+        if(parent.length < count) {
+            parent = new int[Math.max(count, parent.length * 2)];
+            removed = new boolean[parent.length];
+        }
+        for(int i = 0; i < count; i++) {
+            parent[i] = i;
+            removed[i] = false;
+        }
+        int merged = 0;
+        for(int p = 0; p < pairCount; p++) {
+            int a = find(pairA[p]);
+            int b = find(pairB[p]);
+            if(a == b) {
+                continue;
+            }
+            int survivor = bodies.mass[a] > bodies.mass[b] || (bodies.mass[a] == bodies.mass[b] && a < b) ? a : b;
+            int absorbed = survivor == a ? b : a;
+            merge(bodies, survivor, absorbed);
+            parent[absorbed] = survivor;
+            removed[absorbed] = true;
+            merged++;
+            listener.merged(bodies.views[survivor], bodies.views[absorbed]);
+        }
+        bodies.compact(removed);
+        return merged;
+    }
+
+    interface MergeListener {
+        void merged(Body survivor, Body absorbed);
+    }
+
+    private static void merge(BodyStore bodies, int survivor, int absorbed) {
+        double m1 = bodies.mass[survivor];
+        double m2 = bodies.mass[absorbed];
+        double m = m1 + m2;
+        if(m > 0) {
+            bodies.x[survivor] = (m1 * bodies.x[survivor] + m2 * bodies.x[absorbed]) / m;
+            bodies.y[survivor] = (m1 * bodies.y[survivor] + m2 * bodies.y[absorbed]) / m;
+            bodies.vx[survivor] = (m1 * bodies.vx[survivor] + m2 * bodies.vx[absorbed]) / m;
+            bodies.vy[survivor] = (m1 * bodies.vy[survivor] + m2 * bodies.vy[absorbed]) / m;
+        }
+        bodies.mass[survivor] = m;
+        bodies.radius[survivor] = Math.cbrt(Math.pow(bodies.radius[survivor], 3) + Math.pow(bodies.radius[absorbed], 3));
+        bodies.level[survivor] = (byte)Math.max(bodies.level[survivor], bodies.level[absorbed]);
+        Body view = bodies.views[survivor];
+        view.calcDensity();
+        view.calcPixelRadius();
+        //Mass and radius were written past the setters, so the cached info text is dropped here and not left to
+        //whichever setter happens to run
+        view.invalidateInfo();
+    }
+
+    private int find(int i) {
+        while(parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void buildHash(BodyStore bodies) {
+        int count = bodies.count;
+        double total = 0;
+        int sized = 0;
+        for(int i = 0; i < count; i++) {
+            int r = bodies.views[i].getPixelRadius();
+            if(r > 0) {
+                total += r;
+                sized++;
+            }
+        }
+        cellSize = sized == 0 ? 1 : Math.max(1, 2 * total / sized);
+
+        int tableSize = Math.max(Integer.highestOneBit(Math.max(count, 8) * 4), cellHead.length);
+        if(cellHead.length < tableSize) {
+            cellX = new int[tableSize];
+            cellY = new int[tableSize];
+            cellHead = new int[tableSize];
+        }
+        tableMask = tableSize - 1;
+        Arrays.fill(cellHead, 0, tableSize, EMPTY);
+        entryCount = 0;
+        largeCount = 0;
+
+        for(int i = 0; i < count; i++) {
+            int r = bodies.views[i].getPixelRadius();
+            if(r <= 0) {
+                continue;
+            }
+            int minX = cell(bodies.x[i] - r);
+            int maxX = cell(bodies.x[i] + r);
+            int minY = cell(bodies.y[i] - r);
+            int maxY = cell(bodies.y[i] + r);
+            if(maxX - minX >= LARGE_CELLS || maxY - minY >= LARGE_CELLS) {
+                if(largeCount == large.length) {
+                    large = Arrays.copyOf(large, Math.max(4, largeCount * 2));
+                }
+                large[largeCount++] = i;
+                continue;
+            }
+            for(int cx = minX; cx <= maxX; cx++) {
+                for(int cy = minY; cy <= maxY; cy++) {
+                    insert(cx, cy, i);
+                }
+            }
+        }
+    }
+
+    private void findPairs(BodyStore bodies) {
+        pairCount = 0;
+        for(int j = 0; j < bodies.count; j++) {
+            for(int l = 0; l < largeCount; l++) {
+                int i = large[l];
+                if(i != j && StellarPhysics.pointInsideBody(bodies.x[j], bodies.y[j], bodies.views[i])) {
+                    addPair(i, j);
+                }
+            }
+            int slot = lookup(cell(bodies.x[j]), cell(bodies.y[j]));
+            if(slot < 0) {
+                continue;
+            }
+            for(int e = cellHead[slot]; e != EMPTY; e = entryNext[e]) {
+                int i = entryBody[e];
+                if(i != j && StellarPhysics.pointInsideBody(bodies.x[j], bodies.y[j], bodies.views[i])) {
+                    addPair(i, j);
+                }
+            }
+        }
+    }
+
+    private int cell(double coordinate) {
+        return (int)Math.floor(coordinate / cellSize);
+    }
+
+    private static int hash(int cx, int cy) {
+        int h = cx * 0x9E3779B1 ^ cy * 0x85EBCA77;
+        return h ^ (h >>> 15);
+    }
+
+    private int lookup(int cx, int cy) {
+        for(int slot = hash(cx, cy) & tableMask; ; slot = (slot + 1) & tableMask) {
+            if(cellHead[slot] == EMPTY) {
+                return -1;
+            }
+            if(cellX[slot] == cx && cellY[slot] == cy) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(int cx, int cy, int body) {
+        if(entryCount == entryBody.length) {
+            entryBody = Arrays.copyOf(entryBody, Math.max(16, entryCount * 2));
+            entryNext = Arrays.copyOf(entryNext, entryBody.length);
+        }
+        int slot = hash(cx, cy) & tableMask;
+        while(cellHead[slot] != EMPTY && (cellX[slot] != cx || cellY[slot] != cy)) {
+            slot = (slot + 1) & tableMask;
+        }
+        if(cellHead[slot] == EMPTY) {
+            cellX[slot] = cx;
+            cellY[slot] = cy;
+        }
+        entryBody[entryCount] = body;
+        entryNext[entryCount] = cellHead[slot];
+        cellHead[slot] = entryCount++;
+        if(entryCount * 2 > tableMask) {
+            growTable();
+        }
+    }
+
+    //Keeps the open addressed table at most half full, bodies can cover more cells than there are bodies
+    private void growTable() {
+        int[] oldX = cellX;
+        int[] oldY = cellY;
+        int[] oldHead = cellHead;
+        int size = (tableMask + 1) * 2;
+        cellX = new int[size];
+        cellY = new int[size];
+        cellHead = new int[size];
+        Arrays.fill(cellHead, EMPTY);
+        tableMask = size - 1;
+        for(int s = 0; s < oldHead.length; s++) {
+            if(oldHead[s] != EMPTY) {
+                int slot = hash(oldX[s], oldY[s]) & tableMask;
+                while(cellHead[slot] != EMPTY) {
+                    slot = (slot + 1) & tableMask;
+                }
+                cellX[slot] = oldX[s];
+                cellY[slot] = oldY[s];
+                cellHead[slot] = oldHead[s];
+            }
+        }
+    }
+
+    private void addPair(int a, int b) {
+        if(pairCount == pairA.length) {
+            pairA = Arrays.copyOf(pairA, Math.max(16, pairCount * 2));
+            pairB = Arrays.copyOf(pairB, pairA.length);
+        }
+        pairA[pairCount] = a;
+        pairB[pairCount] = b;
+        pairCount++;
+    }
+}
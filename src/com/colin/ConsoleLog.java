@@ -0,0 +1,55 @@
+package com.colin;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Prints messages on a background thread, so the animation and simulation threads never wait on the console.
+//A full queue drops messages rather than blocking, and the number dropped is printed with the next one.
+public class ConsoleLog {
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private final ArrayBlockingQueue<String> queue;
+    private final AtomicInteger dropped;
+    private final Thread printer;
+
+    ConsoleLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ConsoleLog(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        dropped = new AtomicInteger();
+        printer = new Thread(this::print, "Console");
+        printer.setDaemon(true);
+        printer.start();
+    }
+
+    //Safe from any thread, never blocks
+    void log(String message) {
+        if(!queue.offer(message)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    //Prints whatever is still queued on the calling thread, for messages logged while shutting down
+    void flush() {
+        for(String message = queue.poll(); message != null; message = queue.poll()) {
+            System.out.println(message);
+        }
+    }
+
+    private void print() {
+        try {
+            while(true) {
+                String message = queue.take();
+                int lost = dropped.getAndSet(0);
+                if(lost > 0) {
+                    System.out.println("(" + lost + " messages dropped)");
+                }
+                System.out.println(message);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.colin;
+
+//Direct summation over every other body, the reference the approximate solvers are compared against
+public class DirectSolver implements ForceSolver {
+    private final GravityKernel kernel;
+    private double softening;
+    private double softening2;
+
+    DirectSolver() {
+        this(GravityKernel.PREFERRED);
+    }
+
+    DirectSolver(GravityKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    GravityKernel getKernel() {
+        return kernel;
+    }
+
+    double getSoftening() {
+        return softening;
+    }
+
+    //Plummer softening length in pixels, keeps close encounters finite, 0 is plain Newtonian gravity
+    void setSoftening(double softening) {
+        if(softening < 0) {
+            throw new IllegalArgumentException("Softening must not be negative: " + softening);
+        }
+        this.softening = softening;
+        this.softening2 = softening * softening;
+    }
+
+    public void prepare(BodyStore store) {
+    }
+
+    public void accumulate(BodyStore store, int i) {
+        kernel.accumulatePulls(store, i, softening2);
+    }
+
+    //Each pair once with equal and opposite accelerations, sums in a different order to accumulate so the
+    //result can differ from the per-body path in the last bits
+    public void accumulateAll(BodyStore store) {
+        kernel.accumulatePairs(store, softening2);
+    }
+}
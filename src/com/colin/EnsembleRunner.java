@@ -0,0 +1,257 @@
+package com.colin;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+
+//Steps many independent generated systems at once and reports how many planets survive, by planet classification,
+//star class and initial distance from the star. System i is generated from seed + i, so any system in the ensemble
+//can be reproduced on its own. Each system steps sequentially on one worker of a work-stealing pool, and a CSV row
+//per planet is written as soon as its system finishes.
+//
+//A planet survives if it is still in the system at the end and within the escape distance of the star, is merged
+//if another body absorbed it, and is ejected if it ends up further out.
+//Usage: EnsembleRunner [--systems n] [--steps n] [--seed n] [--range px] [--planets n] [--threads n] [--tree]
+//                      [--dt frames] [--escape px] [--bin px] [--csv file]
+public class EnsembleRunner {
+    static final String SURVIVED = "survived";
+    static final String MERGED = "merged";
+    static final String EJECTED = "ejected";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int systems = 1000;
+        long steps = 5000;
+        long seed = 1;
+        float range = StellarSystem.DEFAULT_SPAWN_RANGE;
+        int planets = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        GravityMode mode = GravityMode.DIRECT;
+        double dt = 1;
+        double escape = 0;
+        int bin = 100;
+        String csv = null;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--systems": {
+                    systems = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--steps": {
+                    steps = Long.parseLong(args[++i]);
+                    break;
+                }
+                case "--seed": {
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                }
+                case "--range": {
+                    range = Float.parseFloat(args[++i]);
+                    break;
+                }
+                case "--planets": {
+                    planets = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--threads": {
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--tree": {
+                    mode = GravityMode.BARNES_HUT;
+                    break;
+                }
+                case "--dt": {
+                    dt = Double.parseDouble(args[++i]);
+                    break;
+                }
+                case "--escape": {
+                    escape = Double.parseDouble(args[++i]);
+                    break;
+                }
+                case "--bin": {
+                    bin = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--csv": {
+                    csv = args[++i];
+                    break;
+                }
+                default : {
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        }
+        double escapeDistance = escape > 0 ? escape : range * 10;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        ExecutorCompletionService<SystemResult> completed = new ExecutorCompletionService<>(pool);
+        for(int i = 0; i < systems; i++) {
+            int index = i;
+            long systemSeed = seed + i;
+            long stepCount = steps;
+            float spawnRange = range;
+            int planetCount = planets;
+            GravityMode gravityMode = mode;
+            double timestep = dt;
+            completed.submit(() -> run(index, systemSeed, spawnRange, planetCount, gravityMode, timestep, stepCount, escapeDistance));
+        }
+
+        TreeMap<String, Tally> byPlanetClass = new TreeMap<>();
+        TreeMap<Character, Tally> byStarClass = new TreeMap<>();
+        TreeMap<Integer, Tally> byRadius = new TreeMap<>();
+        Tally overall = new Tally();
+        long start = System.nanoTime();
+        Writer out = csv == null ? null : Files.newBufferedWriter(Paths.get(csv), StandardCharsets.UTF_8);
+        try {
+            if(out != null) {
+                out.write("system,seed,star_class,planet_class,initial_radius,outcome\n");
+            }
+            for(int done = 0; done < systems; done++) {
+                SystemResult result;
+                try {
+                    result = completed.take().get();
+                } catch(ExecutionException e) {
+                    throw new IllegalStateException("A system failed", e.getCause());
+                }
+                for(int p = 0; p < result.classifications.size(); p++) {
+                    String outcome = result.outcomes.get(p);
+                    String classification = result.classifications.get(p);
+                    double radius = result.radii.get(p);
+                    overall.add(outcome);
+                    byPlanetClass.computeIfAbsent(classification, k -> new Tally()).add(outcome);
+                    byStarClass.computeIfAbsent(result.starClass, k -> new Tally()).add(outcome);
+                    byRadius.computeIfAbsent((int)(radius / bin) * bin, k -> new Tally()).add(outcome);
+                    if(out != null) {
+                        out.write(result.index + "," + result.seed + "," + result.starClass + "," + classification + "," + String.format(Locale.ROOT, "%.1f", radius) + "," + outcome + "\n");
+                    }
+                }
+                if(out != null) {
+                    out.flush();
+                }
+            }
+        } finally {
+            pool.shutdown();
+            if(out != null) {
+                out.close();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Simulated " + systems + " systems of " + steps + " steps in " + String.format(Locale.ROOT, "%.3f", seconds) + "s on " + threads + " threads");
+        System.out.println("Planets: " + overall);
+        System.out.println("\nBy planet classification");
+        print(byPlanetClass);
+        System.out.println("\nBy star class");
+        print(byStarClass);
+        System.out.println("\nBy initial radius (px)");
+        print(byRadius);
+    }
+
+    //Generates and steps one system, must only touch state of its own so systems can run on any worker
+    static SystemResult run(int index, long seed, float range, int planets, GravityMode mode, double dt, long steps, double escape) {
+        StellarSystem system;
+        if(planets > 0) {
+            system = new StellarSystem(seed);
+            system.addBody(new Star(0, 0, system.getRandom()));
+            system.genPlanets(planets, range);
+        } else {
+            system = new StellarSystem(range, seed);
+        }
+        system.setParallel(false);
+        system.setGravityMode(mode);
+        system.setTimestep(dt);
+
+        BodyStore bodies = system.getStore();
+        Star star = null;
+        IdentityHashMap<Body, Integer> planetIndex = new IdentityHashMap<>();
+        SystemResult result = new SystemResult(index, seed);
+        for(int i = 0; i < bodies.count && star == null; i++) {
+            if(bodies.views[i] instanceof Star) {
+                star = (Star)bodies.views[i];
+            }
+        }
+        result.starClass = star == null ? '?' : star.getClassification();
+        for(int i = 0; i < bodies.count; i++) {
+            if(bodies.views[i] instanceof Planet) {
+                planetIndex.put(bodies.views[i], result.classifications.size());
+                result.classifications.add(((Planet)bodies.views[i]).getClassification());
+                result.radii.add(distance(bodies.views[i], star));
+                result.outcomes.add(SURVIVED);
+            }
+        }
+
+        system.addObserver(new SystemObserver() {
+            public void bodyRemoved(StellarSystem s, Body body) {
+                Integer p = planetIndex.remove(body);
+                if(p != null) {
+                    result.outcomes.set(p, MERGED);
+                }
+            }
+        });
+        system.step(steps);
+
+        for(Map.Entry<Body, Integer> entry : planetIndex.entrySet()) {
+            if(!(distance(entry.getKey(), star) <= escape)) {
+                result.outcomes.set(entry.getValue(), EJECTED);
+            }
+        }
+        return result;
+    }
+
+    private static double distance(Body body, Body star) {
+        return star == null ? Math.hypot(body.getX(), body.getY()) : Math.hypot(body.getX() - star.getX(), body.getY() - star.getY());
+    }
+
+    private static <K> void print(TreeMap<K, Tally> tallies) {
+        for(Map.Entry<K, Tally> entry : tallies.entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    static class SystemResult {
+        final int index;
+        final long seed;
+        char starClass;
+        final ArrayList<String> classifications = new ArrayList<>();
+        final ArrayList<Double> radii = new ArrayList<>();
+        final ArrayList<String> outcomes = new ArrayList<>();
+
+        SystemResult(int index, long seed) {
+            this.index = index;
+            this.seed = seed;
+        }
+    }
+
+    static class Tally {
+        long total;
+        long survived;
+        long merged;
+        long ejected;
+
+        void add(String outcome) {
+            total++;
+            if(outcome.equals(SURVIVED)) {
+                survived++;
+            } else if(outcome.equals(MERGED)) {
+                merged++;
+            } else {
+                ejected++;
+            }
+        }
+
+        public String toString() {
+            return total + " planets, " + String.format(Locale.ROOT, "%.1f", total == 0 ? 0 : 100.0 * survived / total) + "% survived, " + merged + " merged, " + ejected + " ejected";
+        }
+    }
+}
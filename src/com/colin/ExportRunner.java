@@ -0,0 +1,96 @@
+package com.colin;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//Exports a recording made with --record as numbered PNG frames without a display, for encoding into a
+//video with e.g. ffmpeg -i frame-%06d.png. Every --every'th recorded frame from --from to --to is drawn,
+//centred on the system and scaled by --zoom.
+//Usage: ExportRunner --replay file [--out dir] [--size WIDTHxHEIGHT] [--zoom z] [--every n] [--from n] [--to n]
+//                    [--encoders n]
+public class ExportRunner {
+    static final String DEFAULT_DIRECTORY = "frames";
+    static final int DEFAULT_WIDTH = 1920;
+    static final int DEFAULT_HEIGHT = 1080;
+
+    public static void main(String[] args) throws IOException {
+        Path replay = null;
+        Path out = Paths.get(DEFAULT_DIRECTORY);
+        int[] size = {DEFAULT_WIDTH, DEFAULT_HEIGHT};
+        float zoom = 1;
+        int every = 1;
+        int from = 0;
+        int to = Integer.MAX_VALUE;
+        int encoders = Runtime.getRuntime().availableProcessors();
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--replay": {
+                    replay = Paths.get(args[++i]);
+                    break;
+                }
+                case "--out": {
+                    out = Paths.get(args[++i]);
+                    break;
+                }
+                case "--size": {
+                    size = FrameExporter.parseSize(args[++i]);
+                    break;
+                }
+                case "--zoom": {
+                    zoom = Float.parseFloat(args[++i]);
+                    break;
+                }
+                case "--every": {
+                    every = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--from": {
+                    from = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--to": {
+                    to = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--encoders": {
+                    encoders = Integer.parseInt(args[++i]);
+                    break;
+                }
+                default : {
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        }
+        if(replay == null) {
+            throw new IllegalArgumentException("No recording given, use --replay file");
+        }
+        if(every < 1) {
+            throw new IllegalArgumentException("--every must be at least 1");
+        }
+
+        TrajectoryReader reader = new TrajectoryReader(replay);
+        FrameExporter exporter = new FrameExporter(new OffscreenGraphics.Host(), out, size[0], size[1], encoders);
+        exporter.getCamera().setZoom(zoom);
+        Snapshot frame = new Snapshot();
+        int last = Math.min(to, reader.getFrameCount() - 1);
+        long start = System.nanoTime();
+        try {
+            reader.seek(from);
+            while(reader.getFrame() <= last) {
+                if((reader.getFrame() - from) % every == 0) {
+                    reader.fill(frame);
+                    exporter.export(frame);
+                }
+                if(!reader.next()) {
+                    break;
+                }
+            }
+        } finally {
+            exporter.close();
+            reader.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Exported " + exporter.getFrames() + " frames of " + size[0] + "x" + size[1] + " to " + out + " in " + String.format("%.3f", seconds) + "s (" + String.format("%.1f", exporter.getFrames() / seconds) + " frames/s)");
+    }
+}
@@ -0,0 +1,100 @@
+package com.colin;
+
+//Iterative radix-2 complex FFT over split real and imaginary arrays, with the bit reversal and twiddle
+//tables built once for the size. Not thread safe, the 2D transform reuses one column buffer.
+final class Fft {
+    private final int n;
+    private final int[] reverse;
+    private final double[] cos;
+    private final double[] sin;
+    private final double[] columnRe;
+    private final double[] columnIm;
+
+    Fft(int n) {
+        if(n < 2 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + n);
+        }
+        this.n = n;
+        reverse = new int[n];
+        int bits = Integer.numberOfTrailingZeros(n);
+        for(int i = 0; i < n; i++) {
+            reverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+        cos = new double[n / 2];
+        sin = new double[n / 2];
+        for(int k = 0; k < n / 2; k++) {
+            cos[k] = Math.cos(2 * Math.PI * k / n);
+            sin[k] = Math.sin(2 * Math.PI * k / n);
+        }
+        columnRe = new double[n];
+        columnIm = new double[n];
+    }
+
+    int size() {
+        return n;
+    }
+
+    //Transforms the n values from offset in place, the inverse is left unscaled
+    void transform(double[] re, double[] im, int offset, boolean inverse) {
+        for(int i = 0; i < n; i++) {
+            int j = reverse[i];
+            if(j > i) {
+                double t = re[offset + i];
+                re[offset + i] = re[offset + j];
+                re[offset + j] = t;
+                t = im[offset + i];
+                im[offset + i] = im[offset + j];
+                im[offset + j] = t;
+            }
+        }
+        for(int length = 2; length <= n; length <<= 1) {
+            int half = length / 2;
+            int step = n / length;
+            for(int start = offset; start < offset + n; start += length) {
+                for(int k = 0; k < half; k++) {
+                    double wr = cos[k * step];
+                    double wi = inverse ? sin[k * step] : -sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    //Transforms an n by n row-major grid in place, the inverse is scaled by 1 / (n * n). Only the first rows
+    //rows are transformed on their own: going forward the rest must be zero, going back they are left unfinished.
+    void transform2d(double[] re, double[] im, int rows, boolean inverse) {
+        if(!inverse) {
+            for(int r = 0; r < rows; r++) {
+                transform(re, im, r * n, false);
+            }
+        }
+        for(int c = 0; c < n; c++) {
+            for(int r = 0, i = c; r < n; r++, i += n) {
+                columnRe[r] = re[i];
+                columnIm[r] = im[i];
+            }
+            transform(columnRe, columnIm, 0, inverse);
+            for(int r = 0, i = c; r < n; r++, i += n) {
+                re[i] = columnRe[r];
+                im[i] = columnIm[r];
+            }
+        }
+        if(inverse) {
+            double scale = 1.0 / ((double)n * n);
+            for(int r = 0; r < rows; r++) {
+                transform(re, im, r * n, true);
+                for(int i = r * n; i < (r + 1) * n; i++) {
+                    re[i] *= scale;
+                    im[i] *= scale;
+                }
+            }
+        }
+    }
+}
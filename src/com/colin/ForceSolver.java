@@ -0,0 +1,17 @@
+package com.colin;
+
+//Computes gravitational acceleration over a BodyStore
+interface ForceSolver {
+    //Called once per step before accumulate, with the positions the forces are evaluated at
+    void prepare(BodyStore store);
+
+    //Adds the acceleration acting on body i to store.ax[i] and store.ay[i]
+    void accumulate(BodyStore store, int i);
+
+    //Adds the acceleration acting on every body, solvers that can share work between bodies override it
+    default void accumulateAll(BodyStore store) {
+        for(int i = 0; i < store.count; i++) {
+            accumulate(store, i);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.colin;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Writes snapshots as numbered PNG frames, frame-000000.png and on, for turning a run into a video.
+//
+//Each frame is drawn offscreen at the export resolution and its pixels copied into one of a pool of
+//buffers, then encoded and written by a pool of encoder threads so the thread exporting only pays for
+//the drawing and the copy. When every buffer is waiting on an encoder, export blocks until one is free,
+//so an export that outruns the disk slows the caller down instead of queueing frames without limit.
+public class FrameExporter {
+    static final String PREFIX = "frame-";
+    static final String FORMAT = "png";
+    private static final DirectColorModel RGB = new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+
+    private final Path directory;
+    private final PGraphics canvas;
+    private final SpriteCache sprites;
+    private final BodyRenderer renderer;
+    private final Camera camera;
+    private final ArrayBlockingQueue<int[]> free;
+    private final ThreadPoolExecutor encoders;
+    private final int width;
+    private final int height;
+    private volatile IOException failure;
+    private int frames;
+    private boolean closed;
+
+    //Draws with the sketch's renderer, pass an OffscreenGraphics.Host to export without a display
+    FrameExporter(PApplet app, Path directory, int width, int height) throws IOException {
+        this(app, directory, width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    FrameExporter(PApplet app, Path directory, int width, int height, int threads) throws IOException {
+        if(width < 1 || height < 1) {
+            throw new IllegalArgumentException("Frame size must be at least 1x1");
+        }
+        if(threads < 1) {
+            throw new IllegalArgumentException("Encoder threads must be at least 1");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.width = width;
+        this.height = height;
+        this.canvas = app.createGraphics(width, height);
+        this.sprites = new SpriteCache(app);
+        this.renderer = new BodyRenderer(sprites);
+        this.camera = new Camera(width, height);
+        //Two buffers per encoder keeps every encoder busy while the next frames are drawn
+        int buffers = threads * 2;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        for(int i = 0; i < buffers; i++) {
+            free.add(new int[width * height]);
+        }
+        AtomicInteger started = new AtomicInteger();
+        this.encoders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(buffers), r -> {
+            Thread t = new Thread(r, "Frame encoder " + started.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    //Draws the snapshot as the camera sees it and queues it for writing, waiting for a free buffer if the
+    //encoders are behind. Throws the first write failure of an earlier frame.
+    void export(Snapshot frame) throws IOException {
+        if(closed) {
+            throw new IllegalStateException("Exporter is closed");
+        }
+        if(failure != null) {
+            throw failure;
+        }
+        canvas.beginDraw();
+        canvas.background(0);
+        renderer.render(canvas, frame, camera);
+        canvas.endDraw();
+
+        int[] pixels;
+        try {
+            pixels = free.take();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting", e);
+        }
+        canvas.loadPixels();
+        System.arraycopy(canvas.pixels, 0, pixels, 0, pixels.length);
+        Path path = directory.resolve(String.format(PREFIX + "%06d." + FORMAT, frames));
+        frames++;
+        encoders.execute(() -> encode(pixels, path));
+    }
+
+    //Parses a frame size given as WIDTHxHEIGHT, such as 1920x1080
+    static int[] parseSize(String size) {
+        int split = size.indexOf('x');
+        if(split < 0) {
+            throw new IllegalArgumentException("Frame size must be WIDTHxHEIGHT: " + size);
+        }
+        return new int[] {Integer.parseInt(size.substring(0, split)), Integer.parseInt(size.substring(split + 1))};
+    }
+
+    //What frames show, centred on the system at zoom 1 unless moved
+    Camera getCamera() {
+        return camera;
+    }
+
+    int getFrames() {
+        return frames;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    //Waits for the queued frames to be written and frees the canvas, throws the first write failure
+    void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        encoders.shutdown();
+        try {
+            while(!encoders.awaitTermination(1, TimeUnit.SECONDS)) {
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sprites.clear();
+        canvas.dispose();
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    //Wraps the buffer as an image without copying it and hands it back once written
+    private void encode(int[] pixels, Path path) {
+        try {
+            if(failure == null) {
+                WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, pixels.length), width, height, width, RGB.getMasks(), null);
+                if(!ImageIO.write(new BufferedImage(RGB, raster, false, null), FORMAT, path.toFile())) {
+                    throw new IOException("No " + FORMAT + " writer");
+                }
+            }
+        } catch(IOException e) {
+            failure = new IOException("Could not write " + path + ": " + e.getMessage(), e);
+        } finally {
+            free.add(pixels);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.colin;
+
+//The direct summation loops behind DirectSolver, so a vectorised version can stand in for the scalar one.
+//Kernels sum in different orders, so results agree to rounding but not bit for bit.
+interface GravityKernel {
+    String VECTOR_MODULE = "jdk.incubator.vector";
+    GravityKernel SCALAR = new ScalarGravityKernel();
+    //Kernels hold no state, so every solver shares the one picked at startup
+    GravityKernel PREFERRED = select();
+
+    //Adds the acceleration every other body applies on bodies[i], softening2 is the squared softening length
+    void accumulatePulls(BodyStore bodies, int i, double softening2);
+
+    //Adds the accelerations of every unordered pair to both of its bodies
+    void accumulatePairs(BodyStore bodies, double softening2);
+
+    //The vector kernel when the JVM was started with --add-modules jdk.incubator.vector and the hardware has
+    //more than one double lane, the scalar kernel otherwise. The vector class is only loaded by name, so the
+    //scalar path runs on a JVM without the module.
+    private static GravityKernel select() {
+        if(ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (GravityKernel)Class.forName("com.colin.VectorGravityKernel").getDeclaredConstructor().newInstance();
+            } catch(ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+                return SCALAR;
+            }
+        }
+        return SCALAR;
+    }
+}
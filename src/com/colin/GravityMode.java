@@ -0,0 +1,16 @@
+package com.colin;
+
+public enum GravityMode {
+    DIRECT("Direct"), BARNES_HUT("Tree"), PARTICLE_MESH("Mesh");
+
+    private final String label;
+
+    GravityMode(String label) {
+        this.label = label;
+    }
+
+    //Short name shown in the GUI
+    String getLabel() {
+        return label;
+    }
+}
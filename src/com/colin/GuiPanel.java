@@ -0,0 +1,66 @@
+package com.colin;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+
+//A GUI panel kept in its own offscreen buffer. It is drawn into the buffer only after being invalidated and
+//composited with a single image call every frame, so a panel whose content does not change costs one blit.
+public class GuiPanel {
+    //Room around the panel for its border stroke
+    static final int MARGIN = 4;
+
+    private final PApplet app;
+    private final float x;
+    private final float y;
+    private final int width;
+    private final int height;
+    private PGraphics buffer;
+    private boolean valid;
+
+    GuiPanel(PApplet app, float x, float y, int width, int height) {
+        this.app = app;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    //The cleared buffer to draw the panel into, between beginDraw and end, or null while the last drawing is
+    //still good. Coordinates are relative to the panel's top left corner.
+    PGraphics begin() {
+        if(valid) {
+            return null;
+        }
+        if(buffer == null) {
+            buffer = app.createGraphics(width + MARGIN * 2, height + MARGIN * 2);
+        }
+        buffer.beginDraw();
+        buffer.clear();
+        buffer.translate(MARGIN, MARGIN);
+        return buffer;
+    }
+
+    void end() {
+        buffer.endDraw();
+        valid = true;
+    }
+
+    void draw(PGraphics g) {
+        if(buffer != null) {
+            g.imageMode(PApplet.CORNER);
+            g.image(buffer, x - MARGIN, y - MARGIN);
+        }
+    }
+
+    void dispose() {
+        if(buffer != null) {
+            buffer.dispose();
+            buffer = null;
+        }
+        valid = false;
+    }
+}
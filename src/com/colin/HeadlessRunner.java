@@ -0,0 +1,292 @@
+package com.colin;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//Steps a generated StellarSystem without a display and reports throughput, for compute nodes with no screen.
+//Usage: HeadlessRunner [--steps n] [--range px] [--planets n] [--tree] [--mesh] [--grid n] [--p3m cells]
+//                      [--sequential] [--report n]
+//                      [--integrator legacy|leapfrog|verlet|block|kepler] [--dt frames] [--softening px] [--energy]
+//                      [--resume file] [--save file] [--record file] [--profile file]
+//                      [--frames dir] [--size WIDTHxHEIGHT] [--every n]
+//--resume starts from a checkpoint, its integrator and timestep apply unless given on the command line.
+//--save writes a checkpoint once the steps are done, --record records every step for MainApp --replay.
+//--mesh uses the particle-mesh solver, --grid sets its cells per side and --p3m the radius in cells of its
+//direct short range correction, 0 turns it off.
+//--integrator kepler moves bodies along their orbits around the heaviest one, --kick sets how many steps
+//apart the other forces are applied and --encounter how close two bodies get before they are applied early.
+//--frames draws every --every'th step offscreen at --size and writes it to the directory as a numbered PNG,
+//ExportRunner does the same for a recording.
+//Run with --add-modules jdk.incubator.vector to use the vectorised direct summation kernel.
+//--profile times the step phases and writes them as CSV, they are also printed and served over JMX meanwhile.
+public class HeadlessRunner {
+
+    public static void main(String[] args) throws IOException {
+        long steps = 10000;
+        float range = StellarSystem.DEFAULT_SPAWN_RANGE;
+        int planets = 0;
+        long report = 0;
+        GravityMode mode = GravityMode.DIRECT;
+        boolean parallel = true;
+        boolean energy = false;
+        double dt = 0;
+        double softening = -1;
+        int grid = 0;
+        int kick = 0;
+        double encounter = -1;
+        double shortRange = -1;
+        Integrator integrator = null;
+        GravityMode modeOverride = null;
+        Path resume = null;
+        Path save = null;
+        Path record = null;
+        Path profile = null;
+        Path frames = null;
+        int[] size = {ExportRunner.DEFAULT_WIDTH, ExportRunner.DEFAULT_HEIGHT};
+        long frameInterval = 1;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "--steps": {
+                    steps = Long.parseLong(args[++i]);
+                    break;
+                }
+                case "--range": {
+                    range = Float.parseFloat(args[++i]);
+                    break;
+                }
+                case "--planets": {
+                    planets = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--report": {
+                    report = Long.parseLong(args[++i]);
+                    break;
+                }
+                case "--resume": {
+                    resume = Paths.get(args[++i]);
+                    break;
+                }
+                case "--save": {
+                    save = Paths.get(args[++i]);
+                    break;
+                }
+                case "--record": {
+                    record = Paths.get(args[++i]);
+                    break;
+                }
+                case "--profile": {
+                    profile = Paths.get(args[++i]);
+                    break;
+                }
+                case "--frames": {
+                    frames = Paths.get(args[++i]);
+                    break;
+                }
+                case "--size": {
+                    size = FrameExporter.parseSize(args[++i]);
+                    break;
+                }
+                case "--every": {
+                    frameInterval = Long.parseLong(args[++i]);
+                    break;
+                }
+                case "--tree": {
+                    mode = GravityMode.BARNES_HUT;
+                    modeOverride = mode;
+                    break;
+                }
+                case "--mesh": {
+                    mode = GravityMode.PARTICLE_MESH;
+                    modeOverride = mode;
+                    break;
+                }
+                case "--grid": {
+                    grid = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--p3m": {
+                    shortRange = Double.parseDouble(args[++i]);
+                    break;
+                }
+                case "--kick": {
+                    kick = Integer.parseInt(args[++i]);
+                    break;
+                }
+                case "--encounter": {
+                    encounter = Double.parseDouble(args[++i]);
+                    break;
+                }
+                case "--sequential": {
+                    parallel = false;
+                    break;
+                }
+                case "--dt": {
+                    dt = Double.parseDouble(args[++i]);
+                    break;
+                }
+                case "--softening": {
+                    softening = Double.parseDouble(args[++i]);
+                    break;
+                }
+                case "--energy": {
+                    energy = true;
+                    break;
+                }
+                case "--integrator": {
+                    String name = args[++i];
+                    switch(name) {
+                        case "legacy": {
+                            integrator = new LegacyIntegrator();
+                            break;
+                        }
+                        case "leapfrog": {
+                            integrator = new LeapfrogIntegrator();
+                            break;
+                        }
+                        case "verlet": {
+                            integrator = new VelocityVerletIntegrator();
+                            break;
+                        }
+                        case "block": {
+                            integrator = new BlockTimestepIntegrator();
+                            break;
+                        }
+                        case "kepler": {
+                            integrator = new KeplerIntegrator();
+                            break;
+                        }
+                        default : {
+                            throw new IllegalArgumentException("Unknown integrator: " + name);
+                        }
+                    }
+                    break;
+                }
+                default : {
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        }
+
+        StellarSystem system;
+        if(resume != null) {
+            system = new StellarSystem();
+            Checkpoint.read(resume).restore(system);
+            if(modeOverride != null) {
+                system.setGravityMode(modeOverride);
+            }
+        } else {
+            system = new StellarSystem(range);
+            system.setGravityMode(mode);
+        }
+        if(planets > 0) {
+            system.genPlanets(planets, range);
+        }
+        system.setParallel(parallel);
+        if(integrator instanceof KeplerIntegrator) {
+            if(kick > 0) {
+                ((KeplerIntegrator)integrator).setPerturbationInterval(kick);
+            }
+            if(encounter >= 0) {
+                ((KeplerIntegrator)integrator).setEncounterDistance(encounter);
+            }
+        }
+        if(integrator != null) {
+            system.setIntegrator(integrator);
+        }
+        if(dt > 0) {
+            system.setTimestep(dt);
+        }
+        if(softening >= 0) {
+            system.setSoftening(softening);
+        }
+        if(grid > 0) {
+            system.setMeshGrid(grid);
+        }
+        if(shortRange >= 0) {
+            system.setMeshShortRange(shortRange);
+        }
+        if(report > 0) {
+            long every = report;
+            system.addObserver(new SystemObserver() {
+                public void stepped(StellarSystem s) {
+                    if(s.getSteps() % every == 0) {
+                        System.out.println("Step " + s.getSteps() + ": " + s.getStore().size() + " bodies");
+                    }
+                }
+            });
+        }
+
+        Profiler profiler = null;
+        if(profile != null) {
+            profiler = new Profiler();
+            try {
+                profiler.registerMBeans();
+            } catch(JMException e) {
+                System.out.println("Could not register profiler MBeans: " + e.getMessage());
+            }
+            system.setProfiler(profiler);
+        }
+        TrajectoryRecorder recorder = null;
+        if(record != null) {
+            recorder = new TrajectoryRecorder(record, system);
+            system.addObserver(recorder);
+        }
+        FrameExporter exporter = null;
+        if(frames != null) {
+            exporter = new FrameExporter(new OffscreenGraphics.Host(), frames, size[0], size[1]);
+            FrameExporter frameExporter = exporter;
+            long frameEvery = frameInterval;
+            Snapshot snapshot = new Snapshot();
+            system.addObserver(new SystemObserver() {
+                public void stepped(StellarSystem s) {
+                    if(s.getSteps() % frameEvery == 0) {
+                        snapshot.copy(s);
+                        try {
+                            frameExporter.export(snapshot);
+                        } catch(IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+            });
+        }
+
+        int initial = system.getStore().size();
+        double initialEnergy = energy ? system.totalEnergy() : 0;
+        long start = System.nanoTime();
+        system.step(steps);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println("Stepped " + steps + " times in " + String.format("%.3f", seconds) + "s (" + String.format("%.1f", steps / seconds) + " steps/s)");
+        System.out.println("Bodies: " + initial + " -> " + system.getStore().size());
+        System.out.println("Force evaluations: " + system.getForceEvaluations());
+        System.out.println("Gravity kernel: " + system.getGravityKernel());
+        if(profiler != null) {
+            for(PhaseTimer timer : profiler.getTimers()) {
+                if(timer.getCount() > 0) {
+                    System.out.println(timer.getName() + ": p50 " + String.format("%.1f", timer.getP50Micros()) + "us, p99 " + String.format("%.1f", timer.getP99Micros()) + "us, max " + String.format("%.1f", timer.getMaxMicros()) + "us");
+                }
+            }
+            profiler.writeCsv(profile);
+        }
+        if(recorder != null) {
+            recorder.close();
+            System.out.println("Recorded " + recorder.getFrames() + " frames to " + record);
+        }
+        if(exporter != null) {
+            exporter.close();
+            System.out.println("Exported " + exporter.getFrames() + " frames to " + frames);
+        }
+        if(energy) {
+            double finalEnergy = system.totalEnergy();
+            System.out.println("Energy: " + initialEnergy + " -> " + finalEnergy + " (" + String.format("%.3e", (finalEnergy - initialEnergy) / Math.abs(initialEnergy)) + " relative)");
+        }
+        if(save != null) {
+            long saveStart = System.nanoTime();
+            Checkpoint.capture(system).write(save);
+            System.out.println("Saved " + system.getStore().size() + " bodies to " + save + " in " + String.format("%.3f", (System.nanoTime() - saveStart) / 1e9) + "s");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.colin;
+
+//Advances a system's bodies by one step of length dt, measured in frames of the original simulation.
+//On entry store.ax/ay hold the accelerations at the current positions, on exit those at the new ones.
+interface Integrator {
+    void step(BodyStore bodies, StellarSystem system, double dt);
+
+    //Whether step relies on store.ax/ay on entry, if not the system does not compute them beforehand
+    default boolean needsAccelerations() {
+        return true;
+    }
+}
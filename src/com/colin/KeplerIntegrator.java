@@ -0,0 +1,271 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//For systems where one body outweighs the rest by orders of magnitude. Each other body is advanced along its
+//exact two-body orbit around the heaviest one (the star) by solving Kepler's equation in universal variables,
+//which holds for bound and unbound orbits alike and for any timestep length. The star drifts in a straight line.
+//
+//Everything else, the pull between the other bodies and their pull on the star, is applied as a velocity kick
+//every perturbationInterval steps, scaled by the steps since the last kick. A kick also comes early on the
+//first step two bodies other than the star are within encounterDistance pixels of each other, found through
+//a spatial hash so the check costs O(n). Early kicks come at most every perturbationInterval / 4 steps, so a
+//dense system where some pair is always close does not pay for a full force evaluation every step.
+//
+//Kicks use the system's solver with the star's mass set to 0 for the evaluation, so the star is no source and
+//the orbits are not pulled by it twice. Whatever the solver gets wrong, a tree's opening angle, the mesh or
+//softening, only touches the perturbation and never shows up as a leftover of the star's pull.
+//
+//Between kicks store.ax/ay hold the perturbing accelerations of the last kick, not the full ones.
+class KeplerIntegrator implements Integrator {
+    static final int DEFAULT_PERTURBATION_INTERVAL = 8;
+    static final double DEFAULT_ENCOUNTER_DISTANCE = 20;
+    //Early kicks wait for at least perturbationInterval / ENCOUNTER_DIVISOR steps
+    static final int ENCOUNTER_DIVISOR = 4;
+    private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 1e-12;
+    private static final int EMPTY = -1;
+
+    private int perturbationInterval;
+    private double encounterDistance;
+    private int sinceKick;
+    private long kicks;
+
+    private int[] bucketStart = new int[0];
+    private int[] bucketEntries = new int[0];
+
+    KeplerIntegrator() {
+        this(DEFAULT_PERTURBATION_INTERVAL, DEFAULT_ENCOUNTER_DISTANCE);
+    }
+
+    KeplerIntegrator(int perturbationInterval, double encounterDistance) {
+        setPerturbationInterval(perturbationInterval);
+        setEncounterDistance(encounterDistance);
+    }
+
+    int getPerturbationInterval() {
+        return perturbationInterval;
+    }
+
+    void setPerturbationInterval(int perturbationInterval) {
+        if(perturbationInterval < 1) {
+            throw new IllegalArgumentException("Perturbation interval must be at least 1: " + perturbationInterval);
+        }
+        this.perturbationInterval = perturbationInterval;
+    }
+
+    double getEncounterDistance() {
+        return encounterDistance;
+    }
+
+    //0 turns encounter checks off, kicks then only come every perturbationInterval steps
+    void setEncounterDistance(double encounterDistance) {
+        if(encounterDistance < 0) {
+            throw new IllegalArgumentException("Encounter distance must not be negative: " + encounterDistance);
+        }
+        this.encounterDistance = encounterDistance;
+    }
+
+    //Perturbation kicks so far, each is one force evaluation of every body
+    long getKicks() {
+        return kicks;
+    }
+
+    public boolean needsAccelerations() {
+        return false;
+    }
+
+    public void step(BodyStore bodies, StellarSystem system, double dt) {
+        int star = heaviest(bodies);
+        if(star < 0) {
+            return;
+        }
+        double[] x = bodies.x;
+        double[] y = bodies.y;
+        double[] vx = bodies.vx;
+        double[] vy = bodies.vy;
+        double mu = StellarPhysics.PIXEL_GRAVITY * bodies.mass[star];
+        double sx = x[star];
+        double sy = y[star];
+        double svx = vx[star];
+        double svy = vy[star];
+        double nsx = sx + svx * dt;
+        double nsy = sy + svy * dt;
+        for(int i = 0; i < bodies.count; i++) {
+            if(i != star) {
+                propagate(bodies, i, x[i] - sx, y[i] - sy, vx[i] - svx, vy[i] - svy, mu, dt, nsx, nsy, svx, svy);
+            }
+        }
+        x[star] = nsx;
+        y[star] = nsy;
+
+        sinceKick++;
+        boolean early = encounterDistance > 0 && sinceKick >= Math.max(1, perturbationInterval / ENCOUNTER_DIVISOR);
+        if(sinceKick >= perturbationInterval || (early && hasEncounter(bodies, star))) {
+            kick(bodies, system, star, sinceKick * dt);
+            sinceKick = 0;
+        }
+    }
+
+    //Adds the accelerations from everything but the star's pull on the other bodies, over interval frames
+    private void kick(BodyStore bodies, StellarSystem system, int star, double interval) {
+        double starMass = bodies.mass[star];
+        bodies.mass[star] = 0;
+        try {
+            system.computeAccelerations();
+        } finally {
+            bodies.mass[star] = starMass;
+        }
+        kicks++;
+        for(int i = 0; i < bodies.count; i++) {
+            bodies.vx[i] += bodies.ax[i] * interval;
+            bodies.vy[i] += bodies.ay[i] * interval;
+        }
+    }
+
+    //Moves body i along its orbit relative to the star by dt and writes it back relative to the star's new
+    //position and velocity. Solves the universal Kepler equation for chi with Laguerre-Conway iterations.
+    private static void propagate(BodyStore bodies, int i, double rx, double ry, double ux, double uy, double mu, double dt, double sx, double sy, double svx, double svy) {
+        double r0 = Math.sqrt(rx * rx + ry * ry);
+        if(r0 == 0 || mu == 0) {
+            bodies.x[i] = sx + rx + ux * dt;
+            bodies.y[i] = sy + ry + uy * dt;
+            return;
+        }
+        double sqrtMu = Math.sqrt(mu);
+        double radialVelocity = (rx * ux + ry * uy) / r0;
+        double alpha = 2 / r0 - (ux * ux + uy * uy) / mu;
+        double sigma = r0 * radialVelocity / sqrtMu;
+        double shape = 1 - alpha * r0;
+        double target = sqrtMu * dt;
+
+        //chi advances at sqrtMu / r, so this is close when a step is short against the orbit, and
+        //Laguerre-Conway converges from it when it is not
+        double chi = target / r0;
+        double c = 0.5;
+        double s = 1.0 / 6;
+        for(int k = 0; k < MAX_ITERATIONS; k++) {
+            double chi2 = chi * chi;
+            double z = alpha * chi2;
+            c = stumpffC(z);
+            s = stumpffS(z);
+            double f = sigma * chi2 * c + shape * chi2 * chi * s + r0 * chi - target;
+            double df = sigma * chi * (1 - z * s) + shape * chi2 * c + r0;
+            double ddf = sigma * (1 - z * c) + shape * chi * (1 - z * s);
+            double root = Math.sqrt(Math.abs(16 * df * df - 20 * f * ddf));
+            double delta = 5 * f / (df + Math.copySign(root, df));
+            chi -= delta;
+            //c and s are from before the last correction, which is below the tolerance by then
+            if(Math.abs(delta) <= TOLERANCE * Math.max(1, Math.abs(chi))) {
+                break;
+            }
+        }
+
+        double chi2 = chi * chi;
+        double z = alpha * chi2;
+        double lf = 1 - chi2 / r0 * c;
+        double lg = dt - chi2 * chi / sqrtMu * s;
+        double nx = lf * rx + lg * ux;
+        double ny = lf * ry + lg * uy;
+        double r = Math.sqrt(nx * nx + ny * ny);
+        double df = sqrtMu / (r * r0) * (z * s - 1) * chi;
+        double dg = 1 - chi2 / r * c;
+        bodies.x[i] = sx + nx;
+        bodies.y[i] = sy + ny;
+        bodies.vx[i] = svx + df * rx + dg * ux;
+        bodies.vy[i] = svy + df * ry + dg * uy;
+    }
+
+    static double stumpffC(double z) {
+        if(z > 1e-3) {
+            return (1 - Math.cos(Math.sqrt(z))) / z;
+        } else if(z < -1e-3) {
+            return (Math.cosh(Math.sqrt(-z)) - 1) / -z;
+        }
+        return 1.0 / 2 - z / 24 + z * z / 720 - z * z * z / 40320;
+    }
+
+    static double stumpffS(double z) {
+        if(z > 1e-3) {
+            double root = Math.sqrt(z);
+            return (root - Math.sin(root)) / (root * z);
+        } else if(z < -1e-3) {
+            double root = Math.sqrt(-z);
+            return (Math.sinh(root) - root) / (root * -z);
+        }
+        return 1.0 / 6 - z / 120 + z * z / 5040 - z * z * z / 362880;
+    }
+
+    private static int heaviest(BodyStore bodies) {
+        int best = -1;
+        for(int i = 0; i < bodies.count; i++) {
+            if(best < 0 || bodies.mass[i] > bodies.mass[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    //Whether any two bodies other than the star are within encounterDistance. Bodies are hashed by the
+    //encounterDistance sized cell they are in, so only the 3 by 3 cells around each body need checking.
+    private boolean hasEncounter(BodyStore bodies, int star) {
+        int count = bodies.count;
+        int buckets = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+        if(bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        }
+        if(bucketEntries.length < count) {
+            bucketEntries = new int[Math.max(count, bucketEntries.length * 2)];
+        }
+        int mask = buckets - 1;
+        double cell = encounterDistance;
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        for(int i = 0; i < count; i++) {
+            if(i != star) {
+                bucketStart[bucket(bodies.x[i], bodies.y[i], cell, 0, 0, mask)]++;
+            }
+        }
+        for(int b = 1; b <= buckets; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        for(int i = count - 1; i >= 0; i--) {
+            if(i != star) {
+                bucketEntries[--bucketStart[bucket(bodies.x[i], bodies.y[i], cell, 0, 0, mask)]] = i;
+            }
+        }
+        double limit = encounterDistance * encounterDistance;
+        for(int i = 0; i < count; i++) {
+            if(i == star) {
+                continue;
+            }
+            for(int oy = -1; oy <= 1; oy++) {
+                for(int ox = -1; ox <= 1; ox++) {
+                    int b = bucket(bodies.x[i], bodies.y[i], cell, ox, oy, mask);
+                    for(int e = bucketStart[b]; e < bucketStart[b + 1]; e++) {
+                        int j = bucketEntries[e];
+                        //Each pair once, and cells sharing a bucket only cost extra distance checks
+                        if(j > i) {
+                            double dx = bodies.x[j] - bodies.x[i];
+                            double dy = bodies.y[j] - bodies.y[i];
+                            if(dx * dx + dy * dy < limit) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int bucket(double x, double y, double cell, int ox, int oy, int mask) {
+        long cx = (long)Math.floor(x / cell) + ox;
+        long cy = (long)Math.floor(y / cell) + oy;
+        long h = cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+
+    public String toString() {
+        return "Kepler";
+    }
+}
@@ -0,0 +1,24 @@
+package com.colin;
+
+//Kick-drift-kick leapfrog, symplectic and second order with one force evaluation per step
+class LeapfrogIntegrator implements Integrator {
+
+    public void step(BodyStore bodies, StellarSystem system, double dt) {
+        double half = dt / 2;
+        for(int i = 0; i < bodies.count; i++) {
+            bodies.vx[i] += bodies.ax[i] * half;
+            bodies.vy[i] += bodies.ay[i] * half;
+            bodies.x[i] += bodies.vx[i] * dt;
+            bodies.y[i] += bodies.vy[i] * dt;
+        }
+        system.computeAccelerations();
+        for(int i = 0; i < bodies.count; i++) {
+            bodies.vx[i] += bodies.ax[i] * half;
+            bodies.vy[i] += bodies.ay[i] * half;
+        }
+    }
+
+    public String toString() {
+        return "Leapfrog";
+    }
+}
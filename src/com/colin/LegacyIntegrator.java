@@ -0,0 +1,22 @@
+package com.colin;
+
+//The original scheme: drift on the old velocity, then kick with the acceleration at the new position.
+//Not symplectic, orbits slowly gain or lose energy, kept so old runs can be reproduced.
+class LegacyIntegrator implements Integrator {
+
+    public void step(BodyStore bodies, StellarSystem system, double dt) {
+        for(int i = 0; i < bodies.count; i++) {
+            bodies.x[i] += bodies.vx[i] * dt;
+            bodies.y[i] += bodies.vy[i] * dt;
+        }
+        system.computeAccelerations();
+        for(int i = 0; i < bodies.count; i++) {
+            bodies.vx[i] += bodies.ax[i] * dt;
+            bodies.vy[i] += bodies.ay[i] * dt;
+        }
+    }
+
+    public String toString() {
+        return "Legacy";
+    }
+}
@@ -2,704 +2,738 @@ package com.colin;
 
 import processing.core.PApplet;
 import processing.core.PGraphics;
-import processing.core.PVector;
-
-import java.util.ArrayList;
-
+import processing.event.MouseEvent;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//Usage: MainApp [--resume file] [--save file] [--record file] [--replay file] [--export dir]
+//               [--export-size WIDTHxHEIGHT]
+//--resume starts from a checkpoint instead of a random system, --save sets the file 'S' and 'L' use and
+//saves to it on exit. --record records the run from the start to the file 'R' uses, --replay plays a
+//recording back instead of simulating. --export writes every frame from the start to the directory 'E'
+//uses, at the window size unless --export-size is given.
 public class MainApp extends PApplet {
+    static final String DEFAULT_CHECKPOINT = "stellar.ckpt";
+    static final String DEFAULT_RECORDING = "stellar.traj";
+    static final String DEFAULT_PROFILE = "profile.csv";
+    static final String DEFAULT_EXPORT = "frames";
+    //Zoom factor of one mouse wheel notch or '-' '=' press
+    static final float ZOOM_STEP = 1.25F;
 
     public static void main(String[] args) {
         String[] PApp = {"com.colin.MainApp"};
-        PApplet.main(PApp);
+        PApplet.main(concat(PApp, args));
     }
 
-    System system;
+    StellarSystem system;
+    Simulation simulation;
+    SystemView view;
     boolean paused;
     boolean orbits;
+    TrailRecorder trails;
+    Path checkpointPath;
+    boolean saveOnExit;
+    ExecutorService checkpointWriter;
+    Path recordingPath;
+    volatile TrajectoryRecorder recorder;
+    TrajectoryReader replay;
+    Path exportPath;
+    int[] exportSize;
+    FrameExporter exporter;
+    double replayFrame;
+    double replaySpeed;
+    Profiler profiler;
+    boolean profiling;
+    //Everything MainApp prints goes through here, off the animation and simulation threads
+    ConsoleLog console;
 
     public void setup() {
+        console = new ConsoleLog();
         surface.setTitle("Colin's Solar Systems");
         surface.setResizable(false);
         surface.setLocation(-3, -3);
-        system = new System();
+        checkpointPath = Paths.get(sketchPath(DEFAULT_CHECKPOINT));
+        recordingPath = Paths.get(sketchPath(DEFAULT_RECORDING));
+        exportPath = Paths.get(sketchPath(DEFAULT_EXPORT));
+        exportSize = new int[] {width, height};
+        Path resume = null;
+        Path replayPath = null;
+        boolean record = false;
+        boolean export = false;
+        for(int i = 0; args != null && i < args.length; i++) {
+            if(args[i].equals("--resume") && i + 1 < args.length) {
+                resume = Paths.get(args[++i]);
+            } else if(args[i].equals("--save") && i + 1 < args.length) {
+                checkpointPath = Paths.get(args[++i]);
+                saveOnExit = true;
+            } else if(args[i].equals("--record") && i + 1 < args.length) {
+                recordingPath = Paths.get(args[++i]);
+                record = true;
+            } else if(args[i].equals("--replay") && i + 1 < args.length) {
+                replayPath = Paths.get(args[++i]);
+            } else if(args[i].equals("--export") && i + 1 < args.length) {
+                exportPath = Paths.get(args[++i]);
+                export = true;
+            } else if(args[i].equals("--export-size") && i + 1 < args.length) {
+                exportSize = FrameExporter.parseSize(args[++i]);
+            }
+        }
+        trails = new TrailRecorder();
         paused = false;
         orbits = false;
+        profiler = new Profiler();
+        try {
+            profiler.registerMBeans();
+        } catch(JMException e) {
+            console.log("Could not register profiler MBeans: " + e.getMessage());
+        }
         frameRate(60);
         background(0);
-    }
-
-    public void settings() {
-        size(displayWidth, displayHeight - 61);
-    }
-
-    public void draw() {
-        drawRectBackground();
-        if(!paused) {
-            system.update();
-        } else {
-            system.renderBodyIndicator();
-        }
-
-        system.render();
-        system.renderGUI();
-        if(paused) {
-            system.renderPausedGUI();
-        }
-    }
-
-    void drawRectBackground() {
-        noStroke();
-        if(orbits) {
-            fill(0, 0, 0, 6);
-        } else {
-            fill(0);
-        }
-        rect(0, 0, width, height);
-    }
-
-    public void keyPressed() {
-        println(keyCode);
-        if(keyCode == 32) {
-            paused = !paused;
-            background(0);
-            draw();
-        } else if(keyCode == 79) {
-            orbits = !orbits;
-        }
-    }
-
-    class System {
-        private ArrayList<Body> bodies;
-        private Body selectedBody;
-
-        System() {
-            bodies = new ArrayList();
-            bodies.add(new Star(0, 0));
-            genPlanets();
-            printBodies();
-        }
-
-        void render() {
-            renderBodies();
-        }
-
-        void update() {
-            updateBodies();
-            checkStarCollision();
-        }
-
-        void renderGUI() {
-            stroke(40);
-            strokeWeight(3);
-            fill(75, 75, 75, 180);
-            rect(20, 10, 190, 55);
-
-            stroke(255);
-            strokeWeight(1);
-            textAlign(LEFT);
-            textSize(15);
-            fill(255);
-            text("'O' - Toggle Orbit Paths\n'Space' - Toggle Pause", 30, 30);
-        }
-
-        void renderPausedGUI() {
-            stroke(40);
-            strokeWeight(3);
-            fill(75, 75, 75, 180);
-            rect(0, height - 50, width, 50);
-            rect(width / 2F - 75, height - 100, 150, 50);
-            textAlign(CENTER, CENTER);
-            fill(255);
-            stroke(255);
-            if(getHoveredBody() != null) {
-                if(mouseButton == LEFT) {
-                    setSelectedBody(getHoveredBody());
-                }
-                if(getHoveredBody() != getSelectedBody()) {
-                    textSize(15);
-                    text(getHoveredBody().toString(), width / 2F, height - 25);
-                    textSize(35);
-                    if(getHoveredBody() instanceof Star) {
-                        text("STAR", width / 2F, height - 80);
-                    } else if(getHoveredBody() instanceof Planet) {
-                        text("PLANET", width / 2F, height - 80);
-                    }
-                    setSelectedBody(null);
-                }
-            }
-            if(getSelectedBody() != null) {
-                textSize(15);
-                text(getSelectedBody().toString(), width / 2F, height - 25);
-                textSize(35);
-                if(getSelectedBody() instanceof Star) {
-                    text("STAR", width / 2F, height - 80);
-                } else if(getSelectedBody() instanceof Planet) {
-                    text("PLANET", width / 2F, height - 80);
-                }
-            }
-            if(getHoveredBody() == null && getSelectedBody() == null) {
-                textSize(20);
-                text("Hover Over Or Click On An Object For More Info", width / 2F, height - 25);
+        checkpointWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Checkpoint writer");
+            t.setDaemon(true);
+            return t;
+        });
+        if(export) {
+            toggleExport();
+        }
+        if(replayPath != null) {
+            try {
+                replay = new TrajectoryReader(replayPath);
+                replaySpeed = 1;
+                view = new SystemView(null);
+                return;
+            } catch(IOException e) {
+                console.log("Could not replay " + replayPath + ": " + e.getMessage());
             }
         }
-
-        private void renderBodies() {
-            for(Body i : bodies) {
-                i.render();
+        system = null;
+        if(resume != null) {
+            try {
+                system = new StellarSystem();
+                Checkpoint.read(resume).restore(system);
+            } catch(IOException e) {
+                console.log("Could not resume from " + resume + ": " + e.getMessage());
+                system = null;
             }
         }
-
-        private void updateBodies() {
-            for(Body i : bodies) {
-                i.update();
-            }
-            applyGravity();
+        if(system == null) {
+            system = new StellarSystem(width / 3F);
         }
-
-        void renderBodyIndicator() {
-            for(Body i : bodies) {
-                i.renderHoverIndicator();
-            }
+        view = new SystemView(system);
+        system.addObserver(view);
+        view.printBodies();
+        system.setProfiler(profiler);
+        simulation = new Simulation(system);
+        if(record) {
+            toggleRecording();
         }
+        simulation.start();
+    }
 
-        private void applyGravity() {
-            for(Body i : bodies) {
-                for(Body j : bodies) {
-                    if(i != j) {
-                        i.modVel((StellarPhysics.gravitationalPull(i, j)));
-                    }
-                }
+    public void dispose() {
+        if(simulation != null) {
+            simulation.stop();
+            if(saveOnExit) {
+                writeCheckpoint(Checkpoint.capture(system));
             }
-        }
-
-        ArrayList getBodies() {
-            return bodies;
-        }
-
-        void addBody(Body body) {
-            bodies.add(body);
-        }
-
-        private void printBodies() {
-            for(Body i : bodies) {
-                if(i instanceof Star) {
-                    println("- Star -");
-                } else if(i instanceof Planet) {
-                    println("- Planet -");
-                } else {
-                    println("- Body -");
-                }
-                println(i.toString() + "\n");
+            if(recorder != null) {
+                closeRecording(recorder);
             }
         }
-
-        private void genPlanets() {
-            int rand = floor(random(1, 14));
-            Star star = (Star)bodies.get(0);
-            for(int i = 0; i < rand; i++) {
-                int randX = (random(1) < 0.5) ? 1 : -1;
-                int randY = (random(1) < 0.5) ? 1 : -1;
-                println("Random for " + i + ": " + randX + ", " + randY);
-                bodies.add(new Planet(((floor(random(width / 3F) * randX) + (randX * (star.getPixelRadius() / 2)))), (floor(random(width / 3F) * randY) + (randY * (star.getPixelRadius() / 2))), star));
+        if(exporter != null) {
+            closeExport(exporter);
+        }
+        if(replay != null) {
+            try {
+                replay.close();
+            } catch(IOException e) {
+                console.log("Could not close " + e.getMessage());
             }
         }
-
-        private void checkStarCollision() {
-            BaseLoop : for(Body i : bodies) {
-                for(Body j : bodies) {
-                    if(j instanceof Star && !(i instanceof Star)) {
-                        if(StellarPhysics.pointInsideBody(i.getPos(), j)) {
-                            println("COLLISION");
-                            bodies.remove(i);
-                            break BaseLoop;
-                        }
-                    }
-                }
+        if(profiler != null) {
+            try {
+                profiler.unregisterMBeans();
+            } catch(JMException e) {
+                console.log("Could not unregister profiler MBeans: " + e.getMessage());
             }
         }
-
-        private Body getHoveredBody() {
-            for(Body i : bodies) {
-                if(i.checkForHover()) {
-                    return i;
-                }
+        if(checkpointWriter != null) {
+            checkpointWriter.shutdown();
+            try {
+                checkpointWriter.awaitTermination(10, TimeUnit.SECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            return null;
         }
-
-        private Body getSelectedBody() {
-            return selectedBody;
+        if(console != null) {
+            console.flush();
         }
+        super.dispose();
+    }
 
-        private void setSelectedBody(Body body) {
-            this.selectedBody = body;
-        }
+    public void settings() {
+        size(displayWidth, displayHeight - 61);
     }
 
-    class Body {
-        private double mass;
-        private double density;
-        private double radius;
-        private int pixelRadius;
-        private PVector vel;
-        private PVector pos;
-        private int chromaticity;
-        private PGraphics gfx;
-        private PGraphics hovergfx;
-
-        Body() {
-            this.mass = 0;
-            this.density = 0;
-            this.radius = 0;
-            this.pixelRadius = 1;
-            this.vel = new PVector(0, 0);
-            this.pos = new PVector(0, 0);
-            this.chromaticity = 255;
-        }
-
-        Body(double mass, double density, double radius, PVector vel, PVector pos) {
-            this.mass = mass;
-            this.density = density;
-            this.radius = radius;
-            this.vel = new PVector(vel.x, vel.y);
-            this.pos = new PVector(pos.x, pos.y);
-            this.chromaticity = 100;
-            calcPixelRadius();
-            initGFX();
+    public void draw() {
+        drawRectBackground();
+        view.updateFrame();
+        if(exporter != null && !paused) {
+            view.exportFrame();
         }
-
-        void render() {
-            renderBody();
+        view.updateHover();
+        if(paused) {
+            view.renderBodyIndicator();
         }
 
-        void update() {
-            applyVelocity();
+        view.render();
+        long start = profiler.renderGUI.start();
+        view.renderGUI();
+        profiler.renderGUI.stop(start);
+        if(paused) {
+            start = profiler.renderPausedGUI.start();
+            view.renderPausedGUI();
+            profiler.renderPausedGUI.stop(start);
         }
-
-        private void renderBody() {
-            pushMatrix();
-            translate(width / 2F, height / 2F);
-            imageMode(CENTER);
-            image(getGFX(), getPos().x, getPos().y);
-            popMatrix();
+        if(profiling) {
+            view.renderProfiler();
         }
+    }
 
-        void renderHoverIndicator() {
-            if(checkForHover()) {
-                println("Hovered");
-                pushMatrix();
-                translate(width / 2F, height / 2F);
-                imageMode(CENTER);
-                image(hovergfx, getPos().x, getPos().y);
-                popMatrix();
+    //Writes the phase timings on the checkpoint thread
+    void exportProfile() {
+        Path path = Paths.get(sketchPath(DEFAULT_PROFILE));
+        checkpointWriter.execute(() -> {
+            try {
+                profiler.writeCsv(path);
+                console.log("Wrote timings to " + path);
+            } catch(IOException e) {
+                console.log("Could not write " + path + ": " + e.getMessage());
             }
-        }
-
-        void initGFX() {
-            gfx = createGraphics(getPixelRadius() * 4, getPixelRadius() * 4);
-            gfx.beginDraw();
-            gfx.background(0, 0, 0, 0);
-            gfx.strokeWeight(getPixelRadius() * 2);
-            gfx.stroke(getChroma());
-            gfx.point(gfx.width / 2, gfx.height / 2);
-            gfx.endDraw();
-
-            hovergfx = createGraphics(getPixelRadius() * 4, getPixelRadius() * 4);
-            hovergfx.beginDraw();
-            hovergfx.strokeWeight(getPixelRadius() * 2 + 5);
-            hovergfx.stroke(255, 0, 0);
-            hovergfx.point(hovergfx.width / 2, hovergfx.height / 2);
-            hovergfx.endDraw();
-        }
-
-        PGraphics getGFX() {
-            return gfx;
-        }
-
-        void setGFX(PGraphics gfx) {
-            this.gfx = gfx;
-        }
-
-        PGraphics getHoverGFX() {
-            return hovergfx;
-        }
-
-        void setHoverGFX(PGraphics gfx) {
-            this.hovergfx = gfx;
-        }
-
-        double getMass() {
-            return mass;
-        }
-
-        void setMass(double mass) {
-            this.mass = mass;
-        }
-
-        double getDensity() {
-            return density;
-        }
-
-        void calcDensity() {
-            double volume = (4 / 3) * PI * pow((float)radius * 100, 3);
-            setDensity(mass * 1000 / volume);
-        }
-
-        void setDensity(double density) {
-            this.density = density;
-        }
-
-        double getRadius() {
-            return radius;
-        }
-
-        void setRadius(double radius) {
-            this.radius = radius;
-        }
-
-        int getPixelRadius() {
-            return pixelRadius;
-        }
-
-        void calcPixelRadius() {
-            this.pixelRadius = StellarPhysics.pixelUnit((float)getRadius());
-        }
+        });
+    }
 
-        PVector getPos() {
-            return pos;
-        }
+    //Captures the system between steps and writes it on the checkpoint thread so the simulation carries on
+    void saveCheckpoint() {
+        simulation.submit(() -> {
+            Checkpoint checkpoint = Checkpoint.capture(system);
+            checkpointWriter.execute(() -> writeCheckpoint(checkpoint));
+        });
+    }
 
-        void setPos(PVector pos) {
-            this.pos = new PVector(pos.x, pos.y);
-        }
+    void loadCheckpoint() {
+        checkpointWriter.execute(() -> {
+            try {
+                Checkpoint checkpoint = Checkpoint.read(checkpointPath);
+                simulation.submit(() -> checkpoint.restore(system));
+                console.log("Loaded " + checkpoint.getCount() + " bodies from " + checkpointPath);
+            } catch(IOException e) {
+                console.log("Could not load " + checkpointPath + ": " + e.getMessage());
+            }
+        });
+    }
 
-        PVector getVel() {
-            return vel;
+    private void writeCheckpoint(Checkpoint checkpoint) {
+        try {
+            checkpoint.write(checkpointPath);
+            console.log("Saved " + checkpoint.getCount() + " bodies to " + checkpointPath);
+        } catch(IOException e) {
+            console.log("Could not save " + checkpointPath + ": " + e.getMessage());
         }
+    }
 
-        void setVel(PVector vel) {
-            this.vel = new PVector(vel.x, vel.y);
-        }
+    //Starts recording to recordingPath, or stops the recording in progress
+    void toggleRecording() {
+        simulation.submit(() -> {
+            if(recorder == null) {
+                try {
+                    recorder = new TrajectoryRecorder(recordingPath, system);
+                    system.addObserver(recorder);
+                    console.log("Recording to " + recordingPath);
+                } catch(IOException e) {
+                    console.log("Could not record to " + recordingPath + ": " + e.getMessage());
+                }
+            } else {
+                TrajectoryRecorder stopped = recorder;
+                recorder = null;
+                system.removeObserver(stopped);
+                checkpointWriter.execute(() -> closeRecording(stopped));
+            }
+        });
+    }
 
-        void modVel(PVector delta) {
-            this.vel = this.vel.add(delta);
+    private void closeRecording(TrajectoryRecorder stopped) {
+        try {
+            stopped.close();
+            console.log("Recorded " + stopped.getFrames() + " frames to " + recordingPath);
+        } catch(IOException e) {
+            console.log("Could not finish " + recordingPath + ": " + e.getMessage());
         }
+    }
 
-        private void applyVelocity() {
-            pos.add(vel);
+    //Starts writing every frame drawn to exportPath, or stops the export in progress. Frames are drawn
+    //offscreen at exportSize and written by the exporter's own threads, so only its back-pressure slows drawing.
+    void toggleExport() {
+        if(exporter == null) {
+            try {
+                exporter = new FrameExporter(this, exportPath, exportSize[0], exportSize[1]);
+                console.log("Exporting frames to " + exportPath);
+            } catch(IOException e) {
+                console.log("Could not export to " + exportPath + ": " + e.getMessage());
+            }
+        } else {
+            FrameExporter stopped = exporter;
+            exporter = null;
+            checkpointWriter.execute(() -> closeExport(stopped));
         }
+    }
 
-        boolean checkForHover() {
-            return StellarPhysics.pointInsideBody(new PVector(mouseX - width / 2F, mouseY - height / 2F), this);
+    private void closeExport(FrameExporter stopped) {
+        try {
+            stopped.close();
+            console.log("Exported " + stopped.getFrames() + " frames to " + stopped.getDirectory());
+        } catch(IOException e) {
+            console.log("Could not finish export: " + e.getMessage());
         }
+    }
 
-        int getChroma() {
-            return chromaticity;
+    //Moves playback on by replaySpeed recorded steps a frame, stopping at the last one
+    void advanceReplay() {
+        if(!paused) {
+            replayFrame = Math.min(replayFrame + replaySpeed, replay.getFrameCount() - 1);
         }
-
-        void setChroma(int chromaticity) {
-            this.chromaticity = chromaticity;
+        try {
+            replay.seek((int)replayFrame);
+        } catch(IOException e) {
+            console.log("Could not read " + e.getMessage());
+            paused = true;
         }
+    }
 
-        public String toString() {
-            return "Mass(kg): " + mass + "     Density(g/m3): " + density + "     Radius(km): " + radius;
+    void replayKeyPressed() {
+        if(keyCode == 32) {
+            paused = !paused;
+        } else if(keyCode == 44) {
+            replaySpeed = Math.max(replaySpeed / 2, 1 / 16D);
+        } else if(keyCode == 46) {
+            replaySpeed = Math.min(replaySpeed * 2, 4096);
+        } else if(keyCode == 37) {
+            replayFrame = Math.max(replayFrame - replay.getFrameCount() / 20D, 0);
+        } else if(keyCode == 39) {
+            replayFrame = Math.min(replayFrame + replay.getFrameCount() / 20D, replay.getFrameCount() - 1);
         }
     }
 
-    class Planet extends Body {
-        private String classification;
+    void drawRectBackground() {
+        noStroke();
+        fill(0);
+        rect(0, 0, width, height);
+    }
 
-        Planet() {
-            super();
-            randomClass();
-            setChroma(color(floor(random(50, 100)), floor(random(50, 100)), floor(random(50, 100))));
+    public void keyPressed() {
+        if(keyCode == 61) {
+            view.zoom(width / 2F, height / 2F, ZOOM_STEP);
+        } else if(keyCode == 45) {
+            view.zoom(width / 2F, height / 2F, 1 / ZOOM_STEP);
+        } else if(keyCode == 90) {
+            view.resetCamera();
+        } else if(keyCode == 84) {
+            profiling = !profiling;
+        } else if(keyCode == 67) {
+            exportProfile();
+        } else if(keyCode == 69) {
+            toggleExport();
+        } else if(replay != null) {
+            replayKeyPressed();
+        } else if(keyCode == 32) {
+            paused = !paused;
+            simulation.setPaused(paused);
+            background(0);
+            draw();
+        } else if(keyCode == 79) {
+            orbits = !orbits;
+            if(orbits) {
+                simulation.submit(() -> {
+                    system.addObserver(trails);
+                    simulation.setTrails(trails);
+                });
+            } else {
+                simulation.submit(() -> {
+                    system.removeObserver(trails);
+                    simulation.setTrails(null);
+                    trails.clear();
+                });
+            }
+        } else if(keyCode == 66) {
+            simulation.submit(system::toggleGravityMode);
+        } else if(keyCode == 80) {
+            simulation.submit(() -> system.setParallel(!system.isParallel()));
+        } else if(keyCode == 73) {
+            simulation.submit(system::cycleIntegrator);
+        } else if(keyCode == 83) {
+            saveCheckpoint();
+        } else if(keyCode == 76) {
+            loadCheckpoint();
+        } else if(keyCode == 82) {
+            toggleRecording();
+        } else if(keyCode == 87) {
+            simulation.cycleWarp();
+        } else if(keyCode == 91) {
+            simulation.submit(() -> system.setTimestep(system.getTimestep() / 2));
+        } else if(keyCode == 93) {
+            simulation.submit(() -> system.setTimestep(system.getTimestep() * 2));
         }
+    }
 
-        Planet(float x, float y, Star star) {
-            this();
-            setPos(new PVector(x, y));
-            modVel(StellarPhysics.stableOrbitInertia(this, star));
-            initGFX();
-        }
+    //Zooms about the mouse
+    public void mouseWheel(MouseEvent event) {
+        view.zoom(mouseX, mouseY, pow(ZOOM_STEP, -event.getCount()));
+    }
 
-        Planet(double mass, double density, float radius, PVector vel, PVector pos) {
-            super(mass, density, radius, vel, pos);
-            classification = "Unknown";
-            initGFX();
-        }
+    public void mouseDragged() {
+        view.pan(mouseX - pmouseX, mouseY - pmouseY);
+    }
 
-        void render() {
-            super.render();
+    //Draws a StellarSystem and its GUI, the system itself knows nothing about the window. Everything drawn
+    //or hovered comes from the snapshots the simulation thread publishes, never the live system.
+    class SystemView implements SystemObserver {
+        private final StellarSystem system;
+        private final SpriteCache sprites;
+        private final BodyRenderer renderer;
+        private final Snapshot frame;
+        private final PickingIndex picking;
+        //Where the system is drawn, every body and trail goes through its transform
+        private final Camera camera;
+        private final GuiPanel helpPanel;
+        private final GuiPanel ratePanel;
+        private final GuiPanel replayPanel;
+        private final GuiPanel infoPanel;
+        //What the cached panels were last drawn with
+        private GravityMode shownGravity;
+        private boolean shownParallel;
+        private Integrator shownIntegrator;
+        private double shownTimestep;
+        private int shownWarp;
+        private boolean shownRecording;
+        private boolean shownExporting;
+        private float shownZoom;
+        private int shownRate = -1;
+        private int shownReplayFrame = -1;
+        private double shownReplaySpeed;
+        private Body shownBody;
+        private String shownInfo;
+        //Slot in frame under the mouse, found once a frame while paused, -1 for none
+        private int hovered = -1;
+        //Whether frame moved since picking was last built, a paused frame only needs indexing once
+        private boolean pickingStale = true;
+        private float frameAlpha = -1;
+        private int frameReplayed = -1;
+        private volatile Body selectedBody;
+        //Slot of selectedBody in the last frame it was looked up in
+        private int selectedSlot = -1;
+
+        SystemView(StellarSystem system) {
+            this.system = system;
+            this.sprites = new SpriteCache(MainApp.this);
+            this.renderer = new BodyRenderer(sprites);
+            this.frame = new Snapshot();
+            this.picking = new PickingIndex();
+            this.camera = new Camera(width, height);
+            this.helpPanel = new GuiPanel(MainApp.this, 20, 10, 230, 275);
+            this.ratePanel = new GuiPanel(MainApp.this, 260, 10, 160, 30);
+            this.replayPanel = new GuiPanel(MainApp.this, 20, 10, 260, 155);
+            this.infoPanel = new GuiPanel(MainApp.this, 0, height - 100, width, 100);
+        }
+
+        //Takes the latest snapshot and interpolates between it and the one before for this frame,
+        //or decodes the frame of the recording being replayed
+        void updateFrame() {
+            if(replay != null) {
+                advanceReplay();
+                if(replay.getFrame() != frameReplayed) {
+                    replay.fill(frame);
+                    frameReplayed = replay.getFrame();
+                    pickingStale = true;
+                }
+                return;
+            }
+            SnapshotBuffer snapshots = simulation.getSnapshots();
+            boolean taken = snapshots.take();
+            Snapshot current = snapshots.getCurrent();
+            Snapshot previous = snapshots.getPrevious();
+            long interval = current.nanoTime - previous.nanoTime;
+            float alpha = interval > 0 ? constrain((float)(System.nanoTime() - current.nanoTime) / interval, 0, 1) : 1;
+            if(taken || alpha != frameAlpha) {
+                frame.interpolate(previous, current, alpha);
+                frameAlpha = alpha;
+                pickingStale = true;
+            }
         }
 
-        void update() {
-            super.update();
+        //Hands the frame being drawn to the exporter, stopping the export if writing an earlier frame failed
+        void exportFrame() {
+            try {
+                exporter.getCamera().set(camera);
+                exporter.export(frame);
+            } catch(IOException e) {
+                console.log(e.getMessage());
+                toggleExport();
+            }
         }
 
-        private void initClass(String classification) {
-            this.classification = classification;
-            float rand = random(1);
-            switch(classification) {
-                case "Jovian": {
-                    setMass(StellarPhysics.convertEarthMass(map(rand, 0, 1, 50.0F, 75.0F)));
-                    setRadius(StellarPhysics.convertEarthRadii(map(rand, 0, 1, 6.0F, 9.0F)));
-                    break;
-                }
-                case "Superterran": {
-                    setMass(StellarPhysics.convertEarthMass(map(rand, 0, 1, 5.0F, 10.0F)));
-                    setRadius(StellarPhysics.convertEarthRadii(map(rand, 0, 1, 1.5F, 2.5F)));
-                    break;
+        //Picks the body under the mouse for the indicator, the info bar and selection to share
+        void updateHover() {
+            if(paused) {
+                if(pickingStale) {
+                    picking.build(frame);
+                    pickingStale = false;
                 }
-                case "Neptunian": {
-                    setMass(StellarPhysics.convertEarthMass(map(rand, 0, 1, 10.0F, 50.0F)));
-                    setRadius(StellarPhysics.convertEarthRadii(map(rand, 0, 1, 2.5F, 6.0F)));
-                    break;
-                }
-                case "Terran": {
-                    setMass(StellarPhysics.convertEarthMass(map(rand, 0, 1, 0.5F, 5.0F)));
-                    setRadius(StellarPhysics.convertEarthRadii(map(rand, 0, 1, 0.8F, 1.5F)));
-                    break;
-                }
-                case "Subterran": {
-                    setMass(StellarPhysics.convertEarthMass(map(rand, 0, 1, 0.5F, 5.0F)));
-                    setRadius(StellarPhysics.convertEarthRadii(map(rand, 0, 1, 0.8F, 1.5F)));
-                    break;
-                }
-                case "Miniterran": {
-                    setMass(StellarPhysics.convertEarthMass(map(rand, 0, 1, 0.5F, 5.0F)));
-                    setRadius(StellarPhysics.convertEarthRadii(map(rand, 0, 1, 0.8F, 1.5F)));
-                    break;
-                }
-                default : {
-                }
-            }
-            calcDensity();
-            calcPixelRadius();
-        }
-
-        private void randomClass() {
-            float rand = random(1);
-            String classification;
-            if(rand < 0.328){
-                classification = "Jovian";
-            } else if(rand < 0.59) {
-                classification = "Superterran";
-            } else if(rand < 0.806) {
-                classification = "Neptunian";
-            } else if(rand < 0.973) {
-                classification = "Terran";
-            } else if(rand < 0.988) {
-                classification = "Subterran";
+                hovered = picking.find(camera.worldX(mouseX), camera.worldY(mouseY));
             } else {
-                classification = "Miniterran";
+                hovered = -1;
             }
-            initClass(classification);
-            initClass(classification);
         }
 
-        public String toString() {
-            return super.toString() + "     Planet Classification: " + classification;
+        void zoom(float screenX, float screenY, float factor) {
+            camera.zoomAt(screenX, screenY, factor);
         }
-    }
-
-    class Star extends Body {
-        private char classification;
-        private double tempK;
 
-        Star() {
-            super();
-            randomClass();
+        void pan(float dx, float dy) {
+            camera.pan(dx, dy);
         }
 
-        Star(float x, float y) {
-            this();
-            setPos(new PVector(x, y));
+        void resetCamera() {
+            camera.reset();
         }
 
-        Star(double mass, double density, float radius, PVector vel, PVector pos, double tempK) {
-            super(mass, density, radius, vel, pos);
-            this.classification = '0';
-            this.tempK = tempK;
-            initGFX();
+        void render() {
+            if(orbits) {
+                renderer.renderTrails(g, frame, camera);
+            }
+            long start = profiler.renderBodies.start();
+            renderBodies();
+            profiler.renderBodies.stop(start);
         }
 
-        Star(char classification) {
-            super();
-            initClass(classification);
-            initGFX();
+        //Median, 99th percentile and worst time of every phase so far, 'T' toggles it and 'C' exports it
+        void renderProfiler() {
+            float left = width - 370;
+            stroke(40);
+            strokeWeight(3);
+            fill(75, 75, 75, 180);
+            rect(left, 10, 350, 40 + 20 * profiler.getTimers().size());
+
+            stroke(255);
+            strokeWeight(1);
+            textSize(15);
+            fill(255);
+            textAlign(LEFT);
+            text("Phase (us)", left + 10, 30);
+            textAlign(RIGHT);
+            text("p50", left + 200, 30);
+            text("p99", left + 270, 30);
+            text("max", left + 340, 30);
+            float y = 55;
+            for(PhaseTimer timer : profiler.getTimers()) {
+                textAlign(LEFT);
+                text(timer.getName(), left + 10, y);
+                textAlign(RIGHT);
+                text(nf((float)timer.getP50Micros(), 0, 1), left + 200, y);
+                text(nf((float)timer.getP99Micros(), 0, 1), left + 270, y);
+                text(nf((float)timer.getMaxMicros(), 0, 1), left + 340, y);
+                y += 20;
+            }
         }
 
-        void render() {
-            super.render();
-        }
-
-        void update() {
-            super.update();
-        }
-
-        void initGFX() {
-            PGraphics gfx = createGraphics(floor(getPixelRadius() * 4), floor(getPixelRadius() * 4));
-            gfx.beginDraw();
-            gfx.strokeWeight(getPixelRadius() * 2 + 4);
-            gfx.stroke(getChroma());
-            gfx.point(gfx.width / 2, gfx.height / 2);
-            gfx.filter(BLUR, 6);
-            gfx.strokeWeight(getPixelRadius() * 2 - 4);
-            gfx.point(gfx.width / 2, gfx.height / 2);
-            gfx.endDraw();
-            setGFX(gfx);
-
-            PGraphics hovergfx = createGraphics(getPixelRadius() * 4, getPixelRadius() * 4);
-            hovergfx.beginDraw();
-            hovergfx.strokeWeight(getPixelRadius() * 2 + 5);
-            hovergfx.stroke(255, 0, 0);
-            hovergfx.point(gfx.width / 2, gfx.height / 2);
-            hovergfx.endDraw();
-            setHoverGFX(hovergfx);
-        }
-
-        private void initClass(char classification) {
-            this.classification = classification;
-            float rand = random(1);
-            switch(classification) {
-                case 'M': {
-                    setMass(StellarPhysics.convertSolarMass(map(rand, 0, 1, 0.08F, 0.45F)));
-                    setRadius(StellarPhysics.convertSolarRadii(map(rand, 0, 1, 0.2F, 0.7F)));
-                    setTemp(map(rand, 0, 1, 2400, 3700));
-                    setChroma(color(255, 204, 111));
-                    break;
-                }
-                case 'K': {
-                    setMass(StellarPhysics.convertSolarMass(map(rand, 0, 1, 0.45F, 0.8F)));
-                    setRadius(StellarPhysics.convertSolarRadii(map(rand, 0, 1, 0.7F, 0.96F)));
-                    setTemp(map(rand, 0, 1, 3700, 5200));
-                    setChroma(color(255, 210, 161));
-                    break;
-                }
-                case 'G': {
-                    setMass(StellarPhysics.convertSolarMass(map(rand, 0, 1, 0.8F, 1.04F)));
-                    setRadius(StellarPhysics.convertSolarRadii(map(rand, 0, 1, 0.96F, 1.15F)));
-                    setTemp(map(rand, 0, 1, 5200, 6000));
-                    setChroma(color(255, 244, 234));
-                    break;
-                }
-                case 'F': {
-                    setMass(StellarPhysics.convertSolarMass(map(rand, 0, 1, 1.04F, 1.4F)));
-                    setRadius(StellarPhysics.convertSolarRadii(map(rand, 0, 1, 1.15F, 1.4F)));
-                    setTemp(map(rand, 0, 1, 6000, 7500));
-                    setChroma(color(248, 247, 255));
-                    break;
-                }
-                case 'A': {
-                    setMass(StellarPhysics.convertSolarMass( map(rand, 0, 1, 1.4F, 2.1F)));
-                    setRadius(StellarPhysics.convertSolarRadii(map(rand, 0, 1, 1.4F, 1.8F)));
-                    setTemp(map(rand, 0, 1, 7500, 10000));
-                    setChroma(color(202, 215, 255));
-                    break;
-                }
-                case 'B': {
-                    setMass(StellarPhysics.convertSolarMass(map(rand, 0, 1, 2.1F, 16.0F)));
-                    setRadius(StellarPhysics.convertSolarRadii(map(rand, 0, 1, 1.8F, 6.6F)));
-                    setTemp(map(rand, 0, 1, 10000, 30000));
-                    setChroma(color(170, 191, 255));
-                    break;
-                }
-                default : {
-                }
+        //The help and rate panels are only redrawn when what they show changes
+        void renderGUI() {
+            if(replay != null) {
+                renderReplayGUI();
+                return;
             }
-            calcDensity();
-            calcPixelRadius();
-            initGFX();
-        }
-
-        private void randomClass() {
-            float rand = random(1);
-            char classification;
-            if(rand < 0.7646){
-                classification = 'M';
-            } else if(rand < 0.8856) {
-                classification = 'K';
-            } else if(rand < 0.9616) {
-                classification = 'G';
-            } else if(rand < 0.9916) {
-                classification = 'F';
-            } else if(rand < 0.9976) {
-                classification = 'A';
-            } else {
-                classification = 'B';
+            int warp = simulation.getWarp();
+            boolean recording = recorder != null;
+            boolean exporting = exporter != null;
+            float zoom = camera.getZoom();
+            if(frame.gravityMode != shownGravity || frame.parallel != shownParallel || frame.integrator != shownIntegrator || frame.timestep != shownTimestep || warp != shownWarp || recording != shownRecording || exporting != shownExporting || zoom != shownZoom) {
+                shownGravity = frame.gravityMode;
+                shownParallel = frame.parallel;
+                shownIntegrator = frame.integrator;
+                shownTimestep = frame.timestep;
+                shownWarp = warp;
+                shownRecording = recording;
+                shownExporting = exporting;
+                shownZoom = zoom;
+                helpPanel.invalidate();
             }
-            initClass(classification);
-        }
+            PGraphics pg = helpPanel.begin();
+            if(pg != null) {
+                drawPanelBackground(pg, 230, 275);
+                pg.textAlign(LEFT);
+                pg.textSize(15);
+                pg.text("'O' - Toggle Orbit Paths\n'Space' - Toggle Pause\n'B' - Gravity: " + shownGravity.getLabel() + "\n'P' - Parallel: " + (shownParallel ? "On" : "Off") + "\n'I' - Integrator: " + shownIntegrator + "\n'[' ']' - Timestep: " + shownTimestep + "\n'W' - Warp: " + Simulation.warpName(shownWarp) + "\n'S' 'L' - Save / Load\n'R' - Recording: " + (shownRecording ? "On" : "Off") + "\n'E' - Frames: " + (shownExporting ? "On" : "Off") + "\n'T' 'C' - Timings / Export\n'Wheel' '-' '=' - Zoom: " + nf(shownZoom, 0, 2) + "x\n'Drag' 'Z' - Pan / Reset View", 10, 20);
+                helpPanel.end();
+            }
+            helpPanel.draw(g);
 
-        double getTempK() {
-            return tempK;
+            int rate = round((float)simulation.getStepRate());
+            if(rate != shownRate) {
+                shownRate = rate;
+                ratePanel.invalidate();
+            }
+            pg = ratePanel.begin();
+            if(pg != null) {
+                drawPanelBackground(pg, 160, 30);
+                pg.textAlign(LEFT);
+                pg.textSize(15);
+                pg.text("Steps/s: " + shownRate, 10, 20);
+                ratePanel.end();
+            }
+            ratePanel.draw(g);
         }
 
-        void setTemp(double tempK) {
-            this.tempK = tempK;
+        void renderReplayGUI() {
+            boolean exporting = exporter != null;
+            if(replay.getFrame() != shownReplayFrame || replaySpeed != shownReplaySpeed || exporting != shownExporting) {
+                shownReplayFrame = replay.getFrame();
+                shownReplaySpeed = replaySpeed;
+                shownExporting = exporting;
+                replayPanel.invalidate();
+            }
+            PGraphics pg = replayPanel.begin();
+            if(pg != null) {
+                drawPanelBackground(pg, 260, 155);
+                pg.textAlign(LEFT);
+                pg.textSize(15);
+                pg.text("Replay - Frame " + (shownReplayFrame + 1) + " / " + replay.getFrameCount() + "\nStep: " + replay.getStep() + "\n'Space' - Toggle Pause\n',' '.' - Speed: " + shownReplaySpeed + "x\n'Left' 'Right' - Scrub\n'E' - Frames: " + (shownExporting ? "On" : "Off") + "\n'Wheel' 'Drag' 'Z' - Zoom / Pan", 10, 20);
+                replayPanel.end();
+            }
+            replayPanel.draw(g);
         }
 
-        public String toString() {
-            return super.toString() + "     Star Classification: " + classification + "     Temperature(K): " + tempK;
+        //Selection follows the mouse every frame, the bar itself is only redrawn when the body it describes
+        //or that body's info text changes
+        void renderPausedGUI() {
+            Body hoveredBody = getHoveredBody();
+            if(hoveredBody != null && mouseButton == LEFT) {
+                setSelectedBody(hoveredBody);
+            } else if(hoveredBody != null && hoveredBody != getSelectedBody()) {
+                //Hovering another body drops the selection
+                setSelectedBody(null);
+            }
+            Body shown = hoveredBody;
+            String info = hoveredBody == null ? null : frame.info[hovered];
+            if(shown == null && getSelectedBody() != null) {
+                selectedSlot = frame.indexOf(getSelectedBody(), selectedSlot);
+                if(selectedSlot >= 0) {
+                    shown = frame.views[selectedSlot];
+                    info = frame.info[selectedSlot];
+                }
+            }
+            if(shown != shownBody || info != shownInfo) {
+                shownBody = shown;
+                shownInfo = info;
+                infoPanel.invalidate();
+            }
+            PGraphics pg = infoPanel.begin();
+            if(pg != null) {
+                pg.stroke(40);
+                pg.strokeWeight(3);
+                pg.fill(75, 75, 75, 180);
+                pg.rect(0, 50, width, 50);
+                pg.rect(width / 2F - 75, 0, 150, 50);
+                pg.textAlign(CENTER, CENTER);
+                pg.fill(255);
+                pg.stroke(255);
+                if(shown != null) {
+                    pg.textSize(15);
+                    pg.text(info, width / 2F, 75);
+                    pg.textSize(35);
+                    if(shown instanceof Star) {
+                        pg.text("STAR", width / 2F, 20);
+                    } else if(shown instanceof Planet) {
+                        pg.text("PLANET", width / 2F, 20);
+                    }
+                } else {
+                    pg.textSize(20);
+                    pg.text("Hover Over Or Click On An Object For More Info", width / 2F, 75);
+                }
+                infoPanel.end();
+            }
+            infoPanel.draw(g);
         }
-    }
-
-    public static class StellarPhysics {
-        static final double GRAVITATIONAL_CONSTANT = 6.6726 * pow(10, -11);
-        static final double SOLAR_MASS = 1.989 * pow(10, 30);
-        static final double SOLAR_RADIUS = 6.957 * pow(10, 5);
-        static final double EARTH_MASS = 5.972 * pow(10, 24);
-        static final double EARTH_RADIUS = 6.371 * pow(10, 3);
-        static final int PIXEL_UNIT = 4000;
 
-        //Returns PVector representing the velocity of the gravitational pull b2 applies on b1
-        static PVector gravitationalPull(Body b1, Body b2) {
-            float angle = angleVector(b1.getPos(), b2.getPos());
-            double force = ((GRAVITATIONAL_CONSTANT * b1.getMass() * b2.getMass()) / (pow(distVector(b1.getPos(), b2.getPos()), 2) * 1000));
-            double vel = -(force / b1.getMass()) / 1000;
-            return new PVector(((float)(vel * cos(angle)) / PIXEL_UNIT), ((float)(vel * sin(angle))) / PIXEL_UNIT);
+        private void drawPanelBackground(PGraphics pg, float panelWidth, float panelHeight) {
+            pg.stroke(40);
+            pg.strokeWeight(3);
+            pg.fill(75, 75, 75, 180);
+            pg.rect(0, 0, panelWidth, panelHeight);
+            pg.stroke(255);
+            pg.strokeWeight(1);
+            pg.fill(255);
         }
 
-        //Returns float representing angle from p1 to p2
-        static float angleVector(PVector p1, PVector p2) {
-            return atan2(p1.y - p2.y, p1.x - p2.x);
+        private void renderBodies() {
+            renderer.render(g, frame, camera);
         }
 
-        //Returns float representing distance from p1 to p2
-        static float distVector(PVector p1, PVector p2) {
-            return dist(p1.x, p1.y, p2.x, p2.y) * PIXEL_UNIT;
+        void renderBodyIndicator() {
+            if(hovered >= 0) {
+                renderHoverIndicator(hovered);
+            }
         }
 
-        static int pixelUnit(float kilometers) {
-            return floor(kilometers / PIXEL_UNIT);
+        //The ring is drawn for the radius the body appears at, so it stays a thin ring at any zoom
+        void renderHoverIndicator(int i) {
+            float radius = frame.pixelRadius[i] * camera.getZoom();
+            int ringRadius = Math.min(Math.max(round(radius), 1), BodyRenderer.MAX_SPRITE_RADIUS);
+            PGraphics ring = sprites.get(ringRadius, 0, SpriteCache.HOVER);
+            float scale = Math.max(radius / ringRadius, 1);
+            imageMode(CENTER);
+            image(ring, camera.screenX(frame.x[i]), camera.screenY(frame.y[i]), ring.width * scale, ring.height * scale);
         }
 
-        static double convertSolarMass(float solarMasses) {
-            return solarMasses * SOLAR_MASS;
+        public void bodiesMerged(StellarSystem system, Body survivor, Body absorbed) {
+            console.log("COLLISION");
         }
 
-        static double convertSolarRadii(float solarRadii) {
-            return solarRadii * SOLAR_RADIUS;
+        //Also called for every body when a checkpoint is restored, which is no collision
+        public void bodyRemoved(StellarSystem system, Body body) {
+            if(selectedBody == body) {
+                selectedBody = null;
+            }
         }
 
-        static double convertEarthMass(float earthMasses) {
-            return earthMasses * EARTH_MASS;
+        void printBodies() {
+            for(Body i : system.getBodies()) {
+                if(i instanceof Star) {
+                    console.log("- Star -");
+                } else if(i instanceof Planet) {
+                    console.log("- Planet -");
+                } else {
+                    console.log("- Body -");
+                }
+                console.log(i.getInfo() + "\n");
+            }
         }
 
-        static double convertEarthRadii(float earthRadii) {
-            return earthRadii * EARTH_RADIUS;
+        private Body getHoveredBody() {
+            return hovered < 0 ? null : frame.views[hovered];
         }
 
-        static PVector stableOrbitInertia(Body  b1, Body b2) {
-            float angle = angleVector(b1.getPos(), b2.getPos());
-            double force = ((GRAVITATIONAL_CONSTANT * b1.getMass() * b2.getMass()) / (pow(distVector(b1.getPos(), b2.getPos()), 2) * 1000));
-            double vel = -(force / b1.getMass()) / 1000;
-            return new PVector(((float)(vel * cos(angle - radians(90)) * (distVector(b1.getPos(), b2.getPos()) / PIXEL_UNIT / 2)) / PIXEL_UNIT), ((float)(vel * sin(angle - radians(90)) * (distVector(b1.getPos(), b2.getPos()) / PIXEL_UNIT))) / PIXEL_UNIT);
+        private Body getSelectedBody() {
+            return selectedBody;
         }
 
-        static boolean pointInsideBody(PVector p1, Body b1) {
-            float dist = distVector(p1, b1.getPos());
-            return pixelUnit(dist) < b1.getPixelRadius();
+        private void setSelectedBody(Body body) {
+            this.selectedBody = body;
         }
     }
 }
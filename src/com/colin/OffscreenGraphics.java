@@ -0,0 +1,34 @@
+package com.colin;
+
+import processing.awt.PGraphicsJava2D;
+import processing.core.PApplet;
+import processing.core.PGraphics;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+//Java2D graphics drawn into a plain ARGB image. The stock renderer asks the screen for a compatible image,
+//which fails without a display, so this is what frames are drawn with on headless machines.
+public class OffscreenGraphics extends PGraphicsJava2D {
+
+    public Graphics2D checkImage() {
+        if(image == null || ((BufferedImage)image).getWidth() != width * pixelDensity || ((BufferedImage)image).getHeight() != height * pixelDensity) {
+            image = new BufferedImage(width * pixelDensity, height * pixelDensity, BufferedImage.TYPE_INT_ARGB);
+        }
+        return (Graphics2D)image.getGraphics();
+    }
+
+    //A sketch that is never shown, for the sprites and canvases of an export without a window.
+    //Every createGraphics call it gets makes an OffscreenGraphics.
+    static class Host extends PApplet {
+
+        Host() {
+            g = new OffscreenGraphics();
+            g.setParent(this);
+        }
+
+        public PGraphics createGraphics(int w, int h) {
+            return createGraphics(w, h, OffscreenGraphics.class.getName());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.colin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+//Accumulates forces for disjoint ranges of target bodies on an executor. Each target only writes its own
+//ax/ay slot and sums its sources in the same order as the sequential loop, so no locks are needed and
+//the result is the same whatever the thread count.
+public class ParallelForces {
+    //Below this many bodies the hand-off costs more than it saves and the caller should stay sequential
+    static final int MIN_BODIES = 256;
+    private static final int MIN_CHUNK = 32;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final ArrayList<Chunk> chunks;
+
+    ParallelForces() {
+        this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    ParallelForces(ExecutorService executor, int parallelism) {
+        this.executor = executor;
+        this.parallelism = Math.max(parallelism, 1);
+        this.chunks = new ArrayList<>();
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    //Runs solver.accumulate for every body in the store, prepare must already have been called
+    void accumulate(ForceSolver solver, BodyStore store) {
+        accumulate(solver, store, null, store.count);
+    }
+
+    //Runs solver.accumulate for the first count slots listed in targets, or for slots 0 to count when targets is null
+    void accumulate(ForceSolver solver, BodyStore store, int[] targets, int count) {
+        int tasks = Math.max(1, Math.min(parallelism * 4, count / MIN_CHUNK));
+        while(chunks.size() < tasks) {
+            chunks.add(new Chunk());
+        }
+        int size = (count + tasks - 1) / tasks;
+        for(int t = 0; t < tasks; t++) {
+            Chunk chunk = chunks.get(t);
+            chunk.solver = solver;
+            chunk.store = store;
+            chunk.targets = targets;
+            chunk.from = Math.min(t * size, count);
+            chunk.to = Math.min(chunk.from + size, count);
+        }
+        try {
+            for(Future<Void> result : executor.invokeAll(chunks.subList(0, tasks))) {
+                result.get();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while accumulating forces", e);
+        } catch(ExecutionException e) {
+            throw new IllegalStateException("Force accumulation failed", e.getCause());
+        }
+    }
+
+    private static class Chunk implements Callable<Void> {
+        private ForceSolver solver;
+        private BodyStore store;
+        private int[] targets;
+        private int from;
+        private int to;
+
+        public Void call() {
+            for(int i = from; i < to; i++) {
+                solver.accumulate(store, targets == null ? i : targets[i]);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//Particle-mesh gravity for systems too large for the tree. Masses are deposited on a grid with cloud-in-cell
+//weights, convolved with the pair force by FFT and read back at each body with the same weights, so a step
+//costs O(N + G^2 log G) for a G by G grid however many bodies there are.
+//
+//Bodies pull each other with an inverse square law in the plane, which is not what the 2D Poisson equation
+//gives, so instead of solving for a potential the density is convolved with the force kernel directly, as
+//the Green's function of that law. The grid is zero padded to twice its size, so the convolution is isolated
+//rather than periodic. The mesh covers the bounding box of the bodies, one body far out coarsens every cell.
+//
+//Within the split radius the mesh kernel is that of a uniform disc, smooth but too weak. With a short range
+//set, the split radius is that many cells and pairs inside it are corrected to the exact force by direct
+//summation (P3M), which keeps planets close to the star on their orbits. Without it the split is one cell.
+//Around 3 cells brings the typical error against direct summation to about 1%, but the correction costs
+//more the more bodies crowd into a cell, so it is off by default.
+public class ParticleMeshSolver implements ForceSolver {
+    static final int DEFAULT_GRID = 256;
+    private static final int EMPTY = -1;
+
+    private final double gravity;
+    private int grid;
+    private int size;
+    private Fft fft;
+    private double shortRange;
+    private double softening2;
+    //Transform of the force kernel in cell units, x in the real part and y in the imaginary part
+    private double[] kernelRe;
+    private double[] kernelIm;
+    private boolean kernelValid;
+    //After prepare the real part holds the x and the imaginary part the y acceleration of each cell, over scale
+    private double[] re;
+    private double[] im;
+    private double scale;
+    private double originX;
+    private double originY;
+    private double cell;
+
+    //Chaining mesh of split radius sized cells, for finding the pairs to correct
+    private int[] head = new int[0];
+    private int[] next = new int[16];
+    private int chainWidth;
+    private int chainHeight;
+    private double chainSize;
+
+    private double[] x;
+    private double[] y;
+    private double[] m;
+
+    ParticleMeshSolver(double gravity) {
+        this.gravity = gravity;
+        setGridSize(DEFAULT_GRID);
+    }
+
+    int getGridSize() {
+        return grid;
+    }
+
+    //Cells along each side of the mesh, a power of two. Memory grows with its square, 32 bytes per cell.
+    void setGridSize(int grid) {
+        if(grid < 8 || Integer.bitCount(grid) != 1) {
+            throw new IllegalArgumentException("Grid size must be a power of two of at least 8: " + grid);
+        }
+        this.grid = grid;
+        this.size = grid * 2;
+        this.fft = new Fft(size);
+        this.kernelRe = null;
+        this.kernelIm = null;
+        this.re = null;
+        this.im = null;
+        kernelValid = false;
+    }
+
+    double getShortRange() {
+        return shortRange;
+    }
+
+    //Radius in cells within which pairs are summed directly, 0 leaves the mesh force alone
+    void setShortRange(double shortRange) {
+        if(shortRange < 0) {
+            throw new IllegalArgumentException("Short range must not be negative: " + shortRange);
+        }
+        this.shortRange = shortRange;
+        kernelValid = false;
+    }
+
+    //Plummer softening length in pixels, used by the short range correction
+    void setSoftening(double softening) {
+        if(softening < 0) {
+            throw new IllegalArgumentException("Softening must not be negative: " + softening);
+        }
+        this.softening2 = softening * softening;
+    }
+
+    public void prepare(BodyStore store) {
+        x = store.x;
+        y = store.y;
+        m = store.mass;
+        int count = store.count;
+        if(!kernelValid) {
+            buildKernel();
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < count; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double extent = count == 0 ? 0 : Math.max(maxX - minX, maxY - minY);
+        //Leaves the last row and column free for the upper cloud-in-cell neighbour
+        cell = extent > 0 ? extent / (grid - 2) : 1;
+        originX = count == 0 ? 0 : minX;
+        originY = count == 0 ? 0 : minY;
+        scale = gravity / (cell * cell);
+
+        Arrays.fill(re, 0);
+        Arrays.fill(im, 0);
+        for(int i = 0; i < count; i++) {
+            double u = (x[i] - originX) / cell;
+            double v = (y[i] - originY) / cell;
+            int cx = Math.min((int)u, grid - 2);
+            int cy = Math.min((int)v, grid - 2);
+            double fx = u - cx;
+            double fy = v - cy;
+            int c = cy * size + cx;
+            re[c] += m[i] * (1 - fx) * (1 - fy);
+            re[c + 1] += m[i] * fx * (1 - fy);
+            re[c + size] += m[i] * (1 - fx) * fy;
+            re[c + size + 1] += m[i] * fx * fy;
+        }
+
+        fft.transform2d(re, im, grid, false);
+        for(int c = 0; c < re.length; c++) {
+            double a = re[c];
+            double b = im[c];
+            re[c] = a * kernelRe[c] - b * kernelIm[c];
+            im[c] = a * kernelIm[c] + b * kernelRe[c];
+        }
+        fft.transform2d(re, im, grid, true);
+
+        if(shortRange > 0) {
+            buildChains(count, extent);
+        }
+    }
+
+    public void accumulate(BodyStore store, int i) {
+        double px = x[i];
+        double py = y[i];
+        double u = (px - originX) / cell;
+        double v = (py - originY) / cell;
+        int cx = Math.min((int)u, grid - 2);
+        int cy = Math.min((int)v, grid - 2);
+        double fx = u - cx;
+        double fy = v - cy;
+        int c = cy * size + cx;
+        double w00 = (1 - fx) * (1 - fy);
+        double w10 = fx * (1 - fy);
+        double w01 = (1 - fx) * fy;
+        double w11 = fx * fy;
+        double sumX = (w00 * re[c] + w10 * re[c + 1] + w01 * re[c + size] + w11 * re[c + size + 1]) * scale;
+        double sumY = (w00 * im[c] + w10 * im[c + 1] + w01 * im[c + size] + w11 * im[c + size + 1]) * scale;
+
+        if(shortRange > 0) {
+            double split = shortRange * cell;
+            double split2 = split * split;
+            double inside = 1 / (split2 * split);
+            //Clamped like buildChains, a body on the far edge of the bounds is in the last chain cell
+            int qx = Math.min((int)((px - originX) / chainSize), chainWidth - 1);
+            int qy = Math.min((int)((py - originY) / chainSize), chainHeight - 1);
+            for(int ny = Math.max(qy - 1, 0); ny <= Math.min(qy + 1, chainHeight - 1); ny++) {
+                for(int nx = Math.max(qx - 1, 0); nx <= Math.min(qx + 1, chainWidth - 1); nx++) {
+                    for(int j = head[ny * chainWidth + nx]; j != EMPTY; j = next[j]) {
+                        double dx = x[j] - px;
+                        double dy = y[j] - py;
+                        double d2 = dx * dx + dy * dy;
+                        if(j != i && d2 < split2) {
+                            double inv = 1 / Math.sqrt(d2 + softening2);
+                            double a = gravity * m[j] * (inv * inv * inv - inside);
+                            sumX += a * dx;
+                            sumY += a * dy;
+                        }
+                    }
+                }
+            }
+        }
+        store.ax[i] += sumX;
+        store.ay[i] += sumY;
+    }
+
+    //Force per unit mass on a body at offset (u, v) cells from a unit mass, Newtonian outside the split radius
+    //and that of a uniform disc of the split radius inside it, wrapped so negative offsets sit at the far end
+    private void buildKernel() {
+        int cells = size * size;
+        if(kernelRe == null) {
+            kernelRe = new double[cells];
+            kernelIm = new double[cells];
+            re = new double[cells];
+            im = new double[cells];
+        }
+        double split = shortRange > 0 ? shortRange : 1;
+        double inside = 1 / (split * split * split);
+        for(int b = 0; b < size; b++) {
+            int v = b < grid ? b : b - size;
+            for(int a = 0; a < size; a++) {
+                int u = a < grid ? a : a - size;
+                double r = Math.sqrt((double)u * u + (double)v * v);
+                double k = r == 0 ? 0 : r < split ? inside : 1 / (r * r * r);
+                kernelRe[b * size + a] = -u * k;
+                kernelIm[b * size + a] = -v * k;
+            }
+        }
+        fft.transform2d(kernelRe, kernelIm, size, false);
+        kernelValid = true;
+    }
+
+    private void buildChains(int count, double extent) {
+        chainSize = shortRange * cell;
+        chainWidth = Math.min((int)(extent / chainSize) + 1, grid);
+        chainHeight = chainWidth;
+        //Capped at the grid, chains are then wider than the split radius, which only costs extra distance checks
+        chainSize = Math.max(chainSize, extent / chainWidth);
+        if(head.length < chainWidth * chainHeight) {
+            head = new int[chainWidth * chainHeight];
+        }
+        Arrays.fill(head, 0, chainWidth * chainHeight, EMPTY);
+        if(next.length < count) {
+            next = new int[Math.max(count, next.length * 2)];
+        }
+        for(int i = 0; i < count; i++) {
+            int qx = Math.min((int)((x[i] - originX) / chainSize), chainWidth - 1);
+            int qy = Math.min((int)((y[i] - originY) / chainSize), chainHeight - 1);
+            int c = qy * chainWidth + qx;
+            next[i] = head[c];
+            head[c] = i;
+        }
+    }
+}
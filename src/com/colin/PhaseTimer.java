@@ -0,0 +1,136 @@
+package com.colin;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Latency histogram for one phase of a step or frame. Memory is fixed: durations up to 15ns get a bucket each,
+//longer ones share 8 buckets per power of two, so a percentile is within about 6% of the true value.
+//Recording is two nanoTime calls and a few atomic adds, and does nothing at all while disabled.
+public class PhaseTimer implements PhaseTimerMBean {
+    private static final int LINEAR = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+    //Stands in for a timer where nothing is being profiled
+    static final PhaseTimer DISABLED = new PhaseTimer("disabled", false);
+
+    private final String name;
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+    private volatile boolean enabled;
+
+    PhaseTimer(String name) {
+        this(name, true);
+    }
+
+    private PhaseTimer(String name, boolean enabled) {
+        this.name = name;
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+        this.enabled = enabled;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    //Returns the time to pass to stop, 0 while disabled
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void stop(long start) {
+        if(start != 0) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        buckets.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m = max.get();
+        while(nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    void setEnabled(boolean enabled) {
+        if(this != DISABLED) {
+            this.enabled = enabled;
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : total.get() / 1000.0 / n;
+    }
+
+    public double getP50Micros() {
+        return percentile(0.5) / 1000.0;
+    }
+
+    public double getP99Micros() {
+        return percentile(0.99) / 1000.0;
+    }
+
+    public double getMaxMicros() {
+        return max.get() / 1000.0;
+    }
+
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    //Middle of the bucket holding the given fraction of recorded durations, in nanoseconds
+    long percentile(double fraction) {
+        long n = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            n += buckets.get(i);
+        }
+        if(n == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(fraction * n);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if(seen >= rank) {
+                return Math.min(middle(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucket(long nanos) {
+        if(nanos < LINEAR) {
+            return (int)nanos;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int)(nanos >>> (magnitude - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR + (magnitude - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long middle(int bucket) {
+        if(bucket < LINEAR) {
+            return bucket;
+        }
+        int magnitude = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (magnitude - 3);
+        return (SUB_BUCKETS + sub) * width + width / 2;
+    }
+}
@@ -0,0 +1,16 @@
+package com.colin;
+
+//JMX view of a PhaseTimer, times are in microseconds
+public interface PhaseTimerMBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
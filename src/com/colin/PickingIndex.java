@@ -0,0 +1,117 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//Uniform grid over the bodies of a snapshot, so the body under the mouse is found from a few cells instead
+//of testing every body. Building is O(n) into arrays that are kept, so neither building nor picking allocates
+//once they have grown. Each body sits in the cell of its centre, and a pick looks at the cells around the point,
+//which covers any body no wider than a cell. The few wider ones, such as the star, are tested on every pick.
+public class PickingIndex {
+    //Bodies per cell the grid is sized for
+    private static final int DENSITY = 4;
+    private static final int MAX_CELLS_PER_SIDE = 1024;
+
+    private Snapshot snapshot;
+    private double originX;
+    private double originY;
+    private double cellSize = 1;
+    private int columns;
+    private int rows;
+    private int[] cellStart = new int[1];
+    private int[] entries = new int[0];
+    private int[] large = new int[0];
+    private int largeCount;
+
+    //Indexes the first count bodies of the snapshot as they are now, picks read its positions until the next build
+    void build(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        int count = snapshot.count;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        double radii = 0;
+        for(int i = 0; i < count; i++) {
+            minX = Math.min(minX, snapshot.x[i]);
+            minY = Math.min(minY, snapshot.y[i]);
+            maxX = Math.max(maxX, snapshot.x[i]);
+            maxY = Math.max(maxY, snapshot.y[i]);
+            radii += snapshot.pixelRadius[i];
+        }
+        if(count == 0) {
+            columns = 0;
+            rows = 0;
+            largeCount = 0;
+            return;
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+        cellSize = Math.max(Math.sqrt(width * height * DENSITY / count), 2 * radii / count);
+        cellSize = Math.max(cellSize, Math.max(width, height) / MAX_CELLS_PER_SIDE);
+        cellSize = Math.max(cellSize, 1);
+        originX = minX;
+        originY = minY;
+        columns = (int)(width / cellSize) + 1;
+        rows = (int)(height / cellSize) + 1;
+
+        int cells = columns * rows;
+        if(cellStart.length < cells + 1) {
+            cellStart = new int[Math.max(cells + 1, cellStart.length * 2)];
+        }
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        if(entries.length < count) {
+            entries = new int[Math.max(count, entries.length * 2)];
+            large = new int[entries.length];
+        }
+        largeCount = 0;
+        double largest = cellSize / 2;
+        for(int i = 0; i < count; i++) {
+            if(snapshot.pixelRadius[i] > largest) {
+                large[largeCount++] = i;
+            } else {
+                cellStart[cellOf(i)]++;
+            }
+        }
+        //Running totals make cellStart the end of each cell, filling backwards leaves it at the start and every
+        //cell in ascending body order
+        for(int c = 1; c <= cells; c++) {
+            cellStart[c] += cellStart[c - 1];
+        }
+        for(int i = count - 1; i >= 0; i--) {
+            if(snapshot.pixelRadius[i] <= largest) {
+                entries[--cellStart[cellOf(i)]] = i;
+            }
+        }
+    }
+
+    //The lowest slot containing the point, the same body Snapshot.find returns, or -1
+    int find(double px, double py) {
+        if(snapshot == null) {
+            return -1;
+        }
+        int best = Integer.MAX_VALUE;
+        for(int k = 0; k < largeCount; k++) {
+            if(large[k] < best && snapshot.contains(large[k], px, py)) {
+                best = large[k];
+            }
+        }
+        int cx = (int)Math.floor((px - originX) / cellSize);
+        int cy = (int)Math.floor((py - originY) / cellSize);
+        for(int y = Math.max(cy - 1, 0); y <= Math.min(cy + 1, rows - 1); y++) {
+            for(int x = Math.max(cx - 1, 0); x <= Math.min(cx + 1, columns - 1); x++) {
+                int c = y * columns + x;
+                //Entries are in ascending order, the first hit in a cell is its best
+                for(int e = cellStart[c]; e < cellStart[c + 1] && entries[e] < best; e++) {
+                    if(snapshot.contains(entries[e], px, py)) {
+                        best = entries[e];
+                    }
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    private int cellOf(int i) {
+        int x = Math.min((int)((snapshot.x[i] - originX) / cellSize), columns - 1);
+        int y = Math.min((int)((snapshot.y[i] - originY) / cellSize), rows - 1);
+        return y * columns + x;
+    }
+}
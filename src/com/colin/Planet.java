@@ -0,0 +1,125 @@
+package com.colin;
+
+import processing.core.PVector;
+
+import java.util.Random;
+
+public class Planet extends Body {
+    //Classifications in the order of their checkpoint codes
+    static final String[] CLASSIFICATIONS = {"Unknown", "Jovian", "Superterran", "Neptunian", "Terran", "Subterran", "Miniterran"};
+
+    private String classification;
+
+    Planet() {
+        this(new Random());
+    }
+
+    //Rolls the class, its properties and the colour from the given generator, so a seeded system is reproducible
+    Planet(Random random) {
+        super();
+        randomClass(random);
+        setChroma(StellarPhysics.color((int)Math.floor(StellarPhysics.random(random, 50, 100)), (int)Math.floor(StellarPhysics.random(random, 50, 100)), (int)Math.floor(StellarPhysics.random(random, 50, 100))));
+    }
+
+    Planet(float x, float y, Star star) {
+        this(x, y, star, new Random());
+    }
+
+    Planet(float x, float y, Star star, Random random) {
+        this(random);
+        setPos(new PVector(x, y));
+        modVel(StellarPhysics.stableOrbitInertia(this, star));
+    }
+
+    Planet(double mass, double density, float radius, PVector vel, PVector pos) {
+        super(mass, density, radius, vel, pos);
+        classification = "Unknown";
+    }
+
+    private void initClass(String classification, Random random) {
+        this.classification = classification;
+        float rand = StellarPhysics.random(random, 1);
+        switch(classification) {
+            case "Jovian": {
+                setMass(StellarPhysics.convertEarthMass(StellarPhysics.map(rand, 0, 1, 50.0F, 75.0F)));
+                setRadius(StellarPhysics.convertEarthRadii(StellarPhysics.map(rand, 0, 1, 6.0F, 9.0F)));
+                break;
+            }
+            case "Superterran": {
+                setMass(StellarPhysics.convertEarthMass(StellarPhysics.map(rand, 0, 1, 5.0F, 10.0F)));
+                setRadius(StellarPhysics.convertEarthRadii(StellarPhysics.map(rand, 0, 1, 1.5F, 2.5F)));
+                break;
+            }
+            case "Neptunian": {
+                setMass(StellarPhysics.convertEarthMass(StellarPhysics.map(rand, 0, 1, 10.0F, 50.0F)));
+                setRadius(StellarPhysics.convertEarthRadii(StellarPhysics.map(rand, 0, 1, 2.5F, 6.0F)));
+                break;
+            }
+            case "Terran": {
+                setMass(StellarPhysics.convertEarthMass(StellarPhysics.map(rand, 0, 1, 0.5F, 5.0F)));
+                setRadius(StellarPhysics.convertEarthRadii(StellarPhysics.map(rand, 0, 1, 0.8F, 1.5F)));
+                break;
+            }
+            case "Subterran": {
+                setMass(StellarPhysics.convertEarthMass(StellarPhysics.map(rand, 0, 1, 0.5F, 5.0F)));
+                setRadius(StellarPhysics.convertEarthRadii(StellarPhysics.map(rand, 0, 1, 0.8F, 1.5F)));
+                break;
+            }
+            case "Miniterran": {
+                setMass(StellarPhysics.convertEarthMass(StellarPhysics.map(rand, 0, 1, 0.5F, 5.0F)));
+                setRadius(StellarPhysics.convertEarthRadii(StellarPhysics.map(rand, 0, 1, 0.8F, 1.5F)));
+                break;
+            }
+            default : {
+            }
+        }
+        calcDensity();
+        calcPixelRadius();
+    }
+
+    private void randomClass(Random random) {
+        float rand = StellarPhysics.random(random, 1);
+        String classification;
+        if(rand < 0.328){
+            classification = "Jovian";
+        } else if(rand < 0.59) {
+            classification = "Superterran";
+        } else if(rand < 0.806) {
+            classification = "Neptunian";
+        } else if(rand < 0.973) {
+            classification = "Terran";
+        } else if(rand < 0.988) {
+            classification = "Subterran";
+        } else {
+            classification = "Miniterran";
+        }
+        initClass(classification, random);
+    }
+
+    String getClassification() {
+        return classification;
+    }
+
+    //Sets the classification without rolling new mass and radius for it
+    void setClassification(String classification) {
+        this.classification = classification;
+        invalidateInfo();
+    }
+
+    static byte classificationCode(String classification) {
+        for(int i = 0; i < CLASSIFICATIONS.length; i++) {
+            if(CLASSIFICATIONS[i].equals(classification)) {
+                return (byte)i;
+            }
+        }
+        return 0;
+    }
+
+    static String classificationName(byte code) {
+        return code > 0 && code < CLASSIFICATIONS.length ? CLASSIFICATIONS[code] : CLASSIFICATIONS[0];
+    }
+
+    public String toString() {
+        return super.toString() + "     Planet Classification: " + classification;
+    }
+}
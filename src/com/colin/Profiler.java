@@ -0,0 +1,84 @@
+package com.colin;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+//The phase timers of a run. The simulation phases are timed by the StellarSystem the profiler is set on and
+//the render phases by the window, each phase is only ever recorded from one thread.
+public class Profiler {
+    static final String DOMAIN = "com.colin";
+
+    final PhaseTimer updateBodies = new PhaseTimer("updateBodies");
+    final PhaseTimer applyGravity = new PhaseTimer("applyGravity");
+    final PhaseTimer resolveCollisions = new PhaseTimer("resolveCollisions");
+    final PhaseTimer renderBodies = new PhaseTimer("renderBodies");
+    final PhaseTimer renderGUI = new PhaseTimer("renderGUI");
+    final PhaseTimer renderPausedGUI = new PhaseTimer("renderPausedGUI");
+    private final List<PhaseTimer> timers;
+    private final List<ObjectName> registered;
+
+    Profiler() {
+        ArrayList<PhaseTimer> list = new ArrayList<>();
+        Collections.addAll(list, updateBodies, applyGravity, resolveCollisions, renderBodies, renderGUI, renderPausedGUI);
+        timers = Collections.unmodifiableList(list);
+        registered = new ArrayList<>();
+    }
+
+    List<PhaseTimer> getTimers() {
+        return timers;
+    }
+
+    void reset() {
+        for(PhaseTimer timer : timers) {
+            timer.reset();
+        }
+    }
+
+    //Registers every timer as com.colin:type=PhaseTimer,name=<phase>, replacing any earlier registration
+    void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for(PhaseTimer timer : timers) {
+            ObjectName name = new ObjectName(DOMAIN + ":type=PhaseTimer,name=" + timer.getName());
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(timer, name);
+            registered.add(name);
+        }
+    }
+
+    void unregisterMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for(ObjectName name : registered) {
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        registered.clear();
+    }
+
+    //One row per phase, times in microseconds
+    void writeCsv(Path path) throws IOException {
+        try(Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("phase,count,mean_us,p50_us,p99_us,max_us\n");
+            for(PhaseTimer timer : timers) {
+                out.write(timer.getName() + "," + timer.getCount() + "," + format(timer.getMeanMicros()) + "," + format(timer.getP50Micros()) + "," + format(timer.getP99Micros()) + "," + format(timer.getMaxMicros()) + "\n");
+            }
+        }
+    }
+
+    private static String format(double micros) {
+        return String.format(Locale.ROOT, "%.3f", micros);
+    }
+}
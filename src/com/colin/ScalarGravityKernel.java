@@ -0,0 +1,17 @@
+package com.colin;
+
+//Plain loops from StellarPhysics, runs everywhere
+class ScalarGravityKernel implements GravityKernel {
+
+    public void accumulatePulls(BodyStore bodies, int i, double softening2) {
+        StellarPhysics.accumulatePulls(bodies, i, softening2);
+    }
+
+    public void accumulatePairs(BodyStore bodies, double softening2) {
+        StellarPhysics.accumulatePairs(bodies, softening2);
+    }
+
+    public String toString() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,228 @@
+package com.colin;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+//Steps a StellarSystem on its own thread at a fixed tick rate and publishes a snapshot after every tick, so the
+//simulation no longer runs at whatever rate the window draws. The system belongs to this thread once started,
+//anything else that wants to change it submits a command that runs between steps.
+//
+//At 1x a tick is one step. Time warp runs more steps per tick, as many of the requested number as fit in the
+//tick according to a running average of the step cost, so a heavy system slows simulated time rather than
+//the rate snapshots arrive at. MAX_WARP fills every tick.
+public class Simulation implements Runnable {
+    static final double DEFAULT_TICKS_PER_SECOND = 60;
+    static final int MAX_WARP = Integer.MAX_VALUE;
+    static final int[] WARPS = {1, 10, 100, MAX_WARP};
+    //Share of a tick the steps may use, the rest is left for the publish and scheduling jitter
+    static final double BUDGET = 0.9;
+    private static final double COST_SMOOTHING = 0.1;
+    private static final long RATE_WINDOW = 500_000_000L;
+
+    private final StellarSystem system;
+    private final SnapshotBuffer snapshots;
+    private final ConcurrentLinkedQueue<Runnable> commands;
+    private volatile Thread thread;
+    private volatile boolean running;
+    private volatile boolean paused;
+    private volatile long tickNanos;
+    private volatile int warp = 1;
+    private double stepCost;
+    private long windowStart;
+    private long windowSteps;
+    private volatile double stepRate;
+
+    Simulation(StellarSystem system) {
+        this.system = system;
+        this.snapshots = new SnapshotBuffer();
+        this.commands = new ConcurrentLinkedQueue<>();
+        setTicksPerSecond(DEFAULT_TICKS_PER_SECOND);
+        snapshots.publish(system);
+    }
+
+    synchronized void start() {
+        if(thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    //Stops the thread and waits for the step in progress to finish
+    synchronized void stop() {
+        if(thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    public void run() {
+        long next = System.nanoTime();
+        windowStart = next;
+        while(running) {
+            boolean changed = runCommands();
+            if(paused) {
+                if(changed) {
+                    snapshots.publish(system);
+                }
+                stepRate = 0;
+                LockSupport.park(this);
+                next = System.nanoTime();
+                windowStart = next;
+                windowSteps = 0;
+                continue;
+            }
+            int steps = stepsThisTick();
+            for(int s = 0; s < steps && running && !paused; s++) {
+                long start = System.nanoTime();
+                system.update();
+                long cost = System.nanoTime() - start;
+                stepCost = stepCost == 0 ? cost : stepCost + (cost - stepCost) * COST_SMOOTHING;
+                windowSteps++;
+            }
+            snapshots.publish(system);
+            measureRate();
+
+            next += tickNanos;
+            long wait = next - System.nanoTime();
+            if(wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            } else {
+                //Running behind, start counting again from now rather than stepping flat out to catch up
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    //How many of the warp's steps fit in this tick's budget, always at least one
+    private int stepsThisTick() {
+        int w = warp;
+        if(w == 1 || stepCost == 0) {
+            return 1;
+        }
+        double fit = Math.max(1, Math.floor(tickNanos * BUDGET / stepCost));
+        return (int)Math.min(w, fit);
+    }
+
+    private void measureRate() {
+        long now = System.nanoTime();
+        if(now - windowStart >= RATE_WINDOW) {
+            stepRate = windowSteps * 1e9 / (now - windowStart);
+            windowStart = now;
+            windowSteps = 0;
+        }
+    }
+
+    //Runs the command on the simulation thread before the next step, or right away if it is not started
+    void submit(Runnable command) {
+        Thread t = thread;
+        if(t == null) {
+            runCommand(command);
+            snapshots.publish(system);
+            return;
+        }
+        commands.add(command);
+        LockSupport.unpark(t);
+    }
+
+    private boolean runCommands() {
+        boolean ran = false;
+        Runnable command;
+        while((command = commands.poll()) != null) {
+            runCommand(command);
+            ran = true;
+        }
+        return ran;
+    }
+
+    //A failing command is reported and dropped, it must not take the simulation thread down with it
+    private static void runCommand(Runnable command) {
+        try {
+            command.run();
+        } catch(RuntimeException e) {
+            System.err.println("Simulation command failed: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    void setPaused(boolean paused) {
+        this.paused = paused;
+        Thread t = thread;
+        if(t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    double getTicksPerSecond() {
+        return 1e9 / tickNanos;
+    }
+
+    void setTicksPerSecond(double ticksPerSecond) {
+        if(!(ticksPerSecond > 0)) {
+            throw new IllegalArgumentException("Ticks per second must be positive: " + ticksPerSecond);
+        }
+        this.tickNanos = Math.max(1, (long)(1e9 / ticksPerSecond));
+    }
+
+    int getWarp() {
+        return warp;
+    }
+
+    //Steps asked for per tick, MAX_WARP for as many as fit
+    void setWarp(int warp) {
+        if(warp < 1) {
+            throw new IllegalArgumentException("Warp must be at least 1: " + warp);
+        }
+        this.warp = warp;
+    }
+
+    //Moves to the next of WARPS, back to 1x after MAX_WARP
+    void cycleWarp() {
+        int w = warp;
+        for(int i = 0; i < WARPS.length; i++) {
+            if(WARPS[i] > w) {
+                setWarp(WARPS[i]);
+                return;
+            }
+        }
+        setWarp(1);
+    }
+
+    //Steps actually run per second over the last half second, 0 while paused
+    double getStepRate() {
+        return stepRate;
+    }
+
+    static String warpName(int warp) {
+        return warp == MAX_WARP ? "Max" : warp + "x";
+    }
+
+    //Copies the recorder's trails into the snapshots from the next publish on, null stops copying. Only to be
+    //called from a submitted command, like adding the recorder to the system.
+    void setTrails(TrailRecorder trails) {
+        snapshots.setTrails(trails);
+    }
+
+    //Reader side of the snapshots, only to be used from one thread
+    SnapshotBuffer getSnapshots() {
+        return snapshots;
+    }
+
+    //The system is only safe to touch from a submitted command while the thread runs
+    StellarSystem getSystem() {
+        return system;
+    }
+}
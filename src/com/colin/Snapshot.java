@@ -0,0 +1,176 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//A copy of everything the window needs from one step of a StellarSystem, so it can be drawn and picked
+//from without touching the live store while the simulation thread keeps stepping.
+public class Snapshot {
+    int count;
+    float[] x = new float[0];
+    float[] y = new float[0];
+    int[] pixelRadius = new int[0];
+    int[] chroma = new int[0];
+    Body[] views = new Body[0];
+    //Info text of each body, formatted by the thread that took the snapshot so the window never reads a body
+    String[] info = new String[0];
+    //Trail points of the first trailCount bodies, those of body i run from trailStart[i] to trailStart[i + 1].
+    //trailCount is 0 when no trails were copied.
+    int trailCount;
+    int[] trailStart = new int[1];
+    float[] trailX = new float[0];
+    float[] trailY = new float[0];
+    long steps;
+    long nanoTime;
+
+    GravityMode gravityMode;
+    boolean parallel;
+    Integrator integrator;
+    double timestep;
+
+    //Copies the current state of the system, must be called from the thread stepping it
+    void copy(StellarSystem system) {
+        BodyStore bodies = system.getStore();
+        ensureCapacity(bodies.count);
+        count = bodies.count;
+        for(int i = 0; i < count; i++) {
+            x[i] = (float)bodies.x[i];
+            y[i] = (float)bodies.y[i];
+            pixelRadius[i] = bodies.views[i].getPixelRadius();
+            chroma[i] = bodies.views[i].getChroma();
+            views[i] = bodies.views[i];
+            info[i] = bodies.views[i].getInfo();
+        }
+        clearTail();
+        steps = system.getSteps();
+        nanoTime = System.nanoTime();
+        gravityMode = system.getGravityMode();
+        parallel = system.isParallel();
+        integrator = system.getIntegrator();
+        timestep = system.getTimestep();
+    }
+
+    //Fills this with the positions a fraction alpha of the way from previous to current. Bodies are matched
+    //by slot, and any body that is not in the same slot of both is drawn where current has it.
+    void interpolate(Snapshot previous, Snapshot current, float alpha) {
+        ensureCapacity(current.count);
+        count = current.count;
+        boolean blend = previous != null && previous != current && alpha < 1;
+        for(int i = 0; i < count; i++) {
+            if(blend && i < previous.count && previous.views[i] == current.views[i]) {
+                x[i] = previous.x[i] + (current.x[i] - previous.x[i]) * alpha;
+                y[i] = previous.y[i] + (current.y[i] - previous.y[i]) * alpha;
+            } else {
+                x[i] = current.x[i];
+                y[i] = current.y[i];
+            }
+        }
+        System.arraycopy(current.pixelRadius, 0, pixelRadius, 0, count);
+        System.arraycopy(current.chroma, 0, chroma, 0, count);
+        System.arraycopy(current.views, 0, views, 0, count);
+        System.arraycopy(current.info, 0, info, 0, count);
+        clearTail();
+        trailCount = current.trailCount;
+        if(trailStart.length < trailCount + 1) {
+            trailStart = new int[current.trailStart.length];
+        }
+        System.arraycopy(current.trailStart, 0, trailStart, 0, trailCount + 1);
+        int points = trailStart[trailCount];
+        if(trailX.length < points) {
+            trailX = new float[current.trailX.length];
+            trailY = new float[current.trailY.length];
+        }
+        System.arraycopy(current.trailX, 0, trailX, 0, points);
+        System.arraycopy(current.trailY, 0, trailY, 0, points);
+        steps = current.steps;
+        nanoTime = current.nanoTime;
+        gravityMode = current.gravityMode;
+        parallel = current.parallel;
+        integrator = current.integrator;
+        timestep = current.timestep;
+    }
+
+    //Copies at most maxPoints points of every body's trail, skipping samples evenly on longer trails, so the
+    //window draws trails without touching the recorder. Must be called from the thread stepping the system
+    //after copy, a null recorder leaves no trails.
+    void copyTrails(TrailRecorder trails, int maxPoints) {
+        if(trails == null) {
+            trailCount = 0;
+            return;
+        }
+        if(trailStart.length < count + 1) {
+            trailStart = new int[Math.max(count + 1, trailStart.length * 2)];
+        }
+        int points = 0;
+        for(int i = 0; i < count; i++) {
+            trailStart[i] = points;
+            TrailRecorder.Trail trail = trails.get(views[i]);
+            if(trail == null || trail.size() < 2) {
+                continue;
+            }
+            if(trailX.length < points + maxPoints) {
+                trailX = Arrays.copyOf(trailX, Math.max(points + maxPoints, trailX.length * 2));
+                trailY = Arrays.copyOf(trailY, trailX.length);
+            }
+            int stride = Math.max(1, (trail.size() + maxPoints - 1) / maxPoints);
+            for(int p = (trail.size() - 1) % stride; p < trail.size(); p += stride) {
+                trailX[points] = trail.getX(p);
+                trailY[points] = trail.getY(p);
+                points++;
+            }
+        }
+        trailStart[count] = points;
+        trailCount = count;
+    }
+
+    int size() {
+        return count;
+    }
+
+    //Same test as StellarPhysics.pointInsideBody, against the copied position and radius
+    boolean contains(int i, double px, double py) {
+        return Math.floor(Math.hypot(px - x[i], py - y[i])) < pixelRadius[i];
+    }
+
+    //Slot of the body in this snapshot, or -1 if it is not in it. Tries the slot it had last first.
+    int indexOf(Body body, int hint) {
+        if(hint >= 0 && hint < count && views[hint] == body) {
+            return hint;
+        }
+        for(int i = 0; i < count; i++) {
+            if(views[i] == body) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //The first body containing the point, or -1
+    int find(double px, double py) {
+        for(int i = 0; i < count; i++) {
+            if(contains(i, px, py)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    void ensureCapacity(int capacity) {
+        if(x.length < capacity) {
+            int size = Math.max(capacity, x.length * 2);
+            x = new float[size];
+            y = new float[size];
+            pixelRadius = new int[size];
+            chroma = new int[size];
+            views = new Body[size];
+            info = new String[size];
+        }
+    }
+
+    //Drops references past count so removed bodies can be collected
+    void clearTail() {
+        for(int i = count; i < views.length && views[i] != null; i++) {
+            views[i] = null;
+            info[i] = null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.colin;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+//Hands snapshots from one writer thread to one reader thread without locks. There are four buffers: the one
+//being written, the one waiting in the shared slot, and the last two the reader took, which it keeps to
+//interpolate between. Publishing swaps the written buffer into the slot, and if the reader has not taken the
+//one already there it is simply overwritten next time. Taking swaps the reader's oldest buffer back in.
+public class SnapshotBuffer {
+    private final AtomicReference<Entry> shared;
+    private Entry writing;
+    private Entry current;
+    private Entry previous;
+    private TrailRecorder trails;
+
+    SnapshotBuffer() {
+        shared = new AtomicReference<>(new Entry());
+        writing = new Entry();
+        current = new Entry();
+        previous = new Entry();
+    }
+
+    //Writer side, copies the system and makes it the latest snapshot
+    void publish(StellarSystem system) {
+        writing.snapshot.copy(system);
+        writing.snapshot.copyTrails(trails, TrailRecorder.SNAPSHOT_POINTS);
+        writing.fresh = true;
+        writing = shared.getAndSet(writing);
+    }
+
+    //Writer side, the recorder whose trails are copied into every snapshot, null for none
+    void setTrails(TrailRecorder trails) {
+        this.trails = trails;
+    }
+
+    //Reader side, takes the latest snapshot if one was published since the last call. Returns whether it did.
+    boolean take() {
+        if(!shared.get().fresh) {
+            return false;
+        }
+        Entry recycled = previous;
+        recycled.fresh = false;
+        previous = current;
+        current = shared.getAndSet(recycled);
+        return true;
+    }
+
+    //Reader side, the newest snapshot taken, empty until the first publish
+    Snapshot getCurrent() {
+        return current.snapshot;
+    }
+
+    //Reader side, the snapshot taken before the current one
+    Snapshot getPrevious() {
+        return previous.snapshot;
+    }
+
+    private static class Entry {
+        final Snapshot snapshot = new Snapshot();
+        boolean fresh;
+    }
+}
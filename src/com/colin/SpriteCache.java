@@ -0,0 +1,133 @@
+package com.colin;
+
+import processing.core.PApplet;
+import processing.core.PGraphics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Shared body sprites keyed by pixel radius, colour and kind. Bodies that look the same share one image,
+//images are drawn the first time they are asked for and the least recently used are dropped once the
+//cache holds more than its byte budget.
+public class SpriteCache {
+    static final int BODY = 0;
+    static final int STAR = 1;
+    static final int HOVER = 2;
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final PApplet app;
+    private final LinkedHashMap<Long, PGraphics> sprites;
+    private long maxBytes;
+    private long bytes;
+
+    SpriteCache(PApplet app) {
+        this(app, DEFAULT_MAX_BYTES);
+    }
+
+    SpriteCache(PApplet app, long maxBytes) {
+        this.app = app;
+        this.maxBytes = maxBytes;
+        this.sprites = new LinkedHashMap<>(64, 0.75F, true);
+    }
+
+    PGraphics getBody(Body body) {
+        return get(body.getPixelRadius(), body.getChroma(), body instanceof Star ? STAR : BODY);
+    }
+
+    //The red hover ring only depends on the radius
+    PGraphics getHover(Body body) {
+        return get(body.getPixelRadius(), 0, HOVER);
+    }
+
+    PGraphics get(int pixelRadius, int chroma, int kind) {
+        long key = ((long)pixelRadius << 34) | ((long)kind << 32) | (chroma & 0xFFFFFFFFL);
+        PGraphics sprite = sprites.get(key);
+        if(sprite == null) {
+            sprite = draw(pixelRadius, chroma, kind);
+            sprites.put(key, sprite);
+            bytes += bytesOf(sprite);
+            trim(key);
+        }
+        return sprite;
+    }
+
+    //The sprite if it has been drawn already, without drawing it otherwise
+    PGraphics getCached(int pixelRadius, int chroma, int kind) {
+        return sprites.get(((long)pixelRadius << 34) | ((long)kind << 32) | (chroma & 0xFFFFFFFFL));
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    int size() {
+        return sprites.size();
+    }
+
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trim(null);
+    }
+
+    void clear() {
+        for(PGraphics sprite : sprites.values()) {
+            sprite.dispose();
+        }
+        sprites.clear();
+        bytes = 0;
+    }
+
+    //Evicts least recently used sprites until the cache fits, never the one just added
+    private void trim(Long keep) {
+        Iterator<Map.Entry<Long, PGraphics>> it = sprites.entrySet().iterator();
+        while(bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Long, PGraphics> eldest = it.next();
+            if(eldest.getKey().equals(keep)) {
+                continue;
+            }
+            bytes -= bytesOf(eldest.getValue());
+            eldest.getValue().dispose();
+            it.remove();
+        }
+    }
+
+    private static long bytesOf(PGraphics sprite) {
+        return (long)sprite.width * sprite.height * 4;
+    }
+
+    private PGraphics draw(int pixelRadius, int chroma, int kind) {
+        int size = Math.max(pixelRadius * 4, 1);
+        PGraphics gfx = app.createGraphics(size, size);
+        gfx.beginDraw();
+        switch(kind) {
+            case STAR: {
+                //A star zoomed out below the glow's radius gets a glow in proportion, the blur fails on smaller images
+                int glow = Math.min(6, pixelRadius);
+                gfx.strokeWeight(pixelRadius * 2 + 4);
+                gfx.stroke(chroma);
+                gfx.point(gfx.width / 2, gfx.height / 2);
+                if(glow > 0) {
+                    gfx.filter(PApplet.BLUR, glow);
+                }
+                gfx.strokeWeight(Math.max(pixelRadius * 2 - 4, pixelRadius));
+                gfx.point(gfx.width / 2, gfx.height / 2);
+                break;
+            }
+            case HOVER: {
+                gfx.strokeWeight(pixelRadius * 2 + 5);
+                gfx.stroke(255, 0, 0);
+                gfx.point(gfx.width / 2, gfx.height / 2);
+                break;
+            }
+            default : {
+                gfx.background(0, 0, 0, 0);
+                gfx.strokeWeight(pixelRadius * 2);
+                gfx.stroke(chroma);
+                gfx.point(gfx.width / 2, gfx.height / 2);
+            }
+        }
+        gfx.endDraw();
+        return gfx;
+    }
+}
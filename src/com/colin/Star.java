@@ -0,0 +1,139 @@
+package com.colin;
+
+import processing.core.PVector;
+
+import java.util.Random;
+
+public class Star extends Body {
+    private char classification;
+    private double tempK;
+
+    Star() {
+        this(new Random());
+    }
+
+    //Rolls the class and its properties from the given generator, so a seeded system is reproducible
+    Star(Random random) {
+        super();
+        randomClass(random);
+    }
+
+    Star(float x, float y) {
+        this(x, y, new Random());
+    }
+
+    Star(float x, float y, Random random) {
+        this(random);
+        setPos(new PVector(x, y));
+    }
+
+    Star(double mass, double density, float radius, PVector vel, PVector pos, double tempK) {
+        super(mass, density, radius, vel, pos);
+        this.classification = '0';
+        this.tempK = tempK;
+    }
+
+    Star(char classification) {
+        this(classification, new Random());
+    }
+
+    Star(char classification, Random random) {
+        super();
+        initClass(classification, random);
+    }
+
+    private void initClass(char classification, Random random) {
+        this.classification = classification;
+        float rand = StellarPhysics.random(random, 1);
+        switch(classification) {
+            case 'M': {
+                setMass(StellarPhysics.convertSolarMass(StellarPhysics.map(rand, 0, 1, 0.08F, 0.45F)));
+                setRadius(StellarPhysics.convertSolarRadii(StellarPhysics.map(rand, 0, 1, 0.2F, 0.7F)));
+                setTemp(StellarPhysics.map(rand, 0, 1, 2400, 3700));
+                setChroma(StellarPhysics.color(255, 204, 111));
+                break;
+            }
+            case 'K': {
+                setMass(StellarPhysics.convertSolarMass(StellarPhysics.map(rand, 0, 1, 0.45F, 0.8F)));
+                setRadius(StellarPhysics.convertSolarRadii(StellarPhysics.map(rand, 0, 1, 0.7F, 0.96F)));
+                setTemp(StellarPhysics.map(rand, 0, 1, 3700, 5200));
+                setChroma(StellarPhysics.color(255, 210, 161));
+                break;
+            }
+            case 'G': {
+                setMass(StellarPhysics.convertSolarMass(StellarPhysics.map(rand, 0, 1, 0.8F, 1.04F)));
+                setRadius(StellarPhysics.convertSolarRadii(StellarPhysics.map(rand, 0, 1, 0.96F, 1.15F)));
+                setTemp(StellarPhysics.map(rand, 0, 1, 5200, 6000));
+                setChroma(StellarPhysics.color(255, 244, 234));
+                break;
+            }
+            case 'F': {
+                setMass(StellarPhysics.convertSolarMass(StellarPhysics.map(rand, 0, 1, 1.04F, 1.4F)));
+                setRadius(StellarPhysics.convertSolarRadii(StellarPhysics.map(rand, 0, 1, 1.15F, 1.4F)));
+                setTemp(StellarPhysics.map(rand, 0, 1, 6000, 7500));
+                setChroma(StellarPhysics.color(248, 247, 255));
+                break;
+            }
+            case 'A': {
+                setMass(StellarPhysics.convertSolarMass(StellarPhysics.map(rand, 0, 1, 1.4F, 2.1F)));
+                setRadius(StellarPhysics.convertSolarRadii(StellarPhysics.map(rand, 0, 1, 1.4F, 1.8F)));
+                setTemp(StellarPhysics.map(rand, 0, 1, 7500, 10000));
+                setChroma(StellarPhysics.color(202, 215, 255));
+                break;
+            }
+            case 'B': {
+                setMass(StellarPhysics.convertSolarMass(StellarPhysics.map(rand, 0, 1, 2.1F, 16.0F)));
+                setRadius(StellarPhysics.convertSolarRadii(StellarPhysics.map(rand, 0, 1, 1.8F, 6.6F)));
+                setTemp(StellarPhysics.map(rand, 0, 1, 10000, 30000));
+                setChroma(StellarPhysics.color(170, 191, 255));
+                break;
+            }
+            default : {
+            }
+        }
+        calcDensity();
+        calcPixelRadius();
+    }
+
+    private void randomClass(Random random) {
+        float rand = StellarPhysics.random(random, 1);
+        char classification;
+        if(rand < 0.7646){
+            classification = 'M';
+        } else if(rand < 0.8856) {
+            classification = 'K';
+        } else if(rand < 0.9616) {
+            classification = 'G';
+        } else if(rand < 0.9916) {
+            classification = 'F';
+        } else if(rand < 0.9976) {
+            classification = 'A';
+        } else {
+            classification = 'B';
+        }
+        initClass(classification, random);
+    }
+
+    char getClassification() {
+        return classification;
+    }
+
+    //Sets the classification without rolling new mass, radius and temperature for it
+    void setClassification(char classification) {
+        this.classification = classification;
+        invalidateInfo();
+    }
+
+    double getTempK() {
+        return tempK;
+    }
+
+    void setTemp(double tempK) {
+        this.tempK = tempK;
+        invalidateInfo();
+    }
+
+    public String toString() {
+        return super.toString() + "     Star Classification: " + classification + "     Temperature(K): " + tempK;
+    }
+}
@@ -0,0 +1,156 @@
+package com.colin;
+
+import processing.core.PVector;
+
+import java.util.Random;
+
+public class StellarPhysics {
+    static final double GRAVITATIONAL_CONSTANT = 6.6726 * Math.pow(10, -11);
+    static final double SOLAR_MASS = 1.989 * Math.pow(10, 30);
+    static final double SOLAR_RADIUS = 6.957 * Math.pow(10, 5);
+    static final double EARTH_MASS = 5.972 * Math.pow(10, 24);
+    static final double EARTH_RADIUS = 6.371 * Math.pow(10, 3);
+    static final int PIXEL_UNIT = 4000;
+    //Gravitational constant in pixel units, matching the scaling applied by gravitationalPull
+    static final double PIXEL_GRAVITY = GRAVITATIONAL_CONSTANT / (1000000.0 * PIXEL_UNIT * PIXEL_UNIT * PIXEL_UNIT);
+
+    //Returns PVector representing the velocity of the gravitational pull b2 applies on b1
+    static PVector gravitationalPull(Body b1, Body b2) {
+        float angle = angleVector(b1.getPos(), b2.getPos());
+        double force = ((GRAVITATIONAL_CONSTANT * b1.getMass() * b2.getMass()) / (Math.pow(distVector(b1.getPos(), b2.getPos()), 2) * 1000));
+        double vel = -(force / b1.getMass()) / 1000;
+        return new PVector(((float)(vel * Math.cos(angle)) / PIXEL_UNIT), ((float)(vel * Math.sin(angle))) / PIXEL_UNIT);
+    }
+
+    //Adds the acceleration bodies[j] applies on bodies[i] to the store, same as gravitationalPull without allocating
+    static void accumulatePull(BodyStore bodies, int i, int j) {
+        double angle = Math.atan2(bodies.y[i] - bodies.y[j], bodies.x[i] - bodies.x[j]);
+        double dist = Math.hypot(bodies.x[i] - bodies.x[j], bodies.y[i] - bodies.y[j]) * PIXEL_UNIT;
+        double vel = -(GRAVITATIONAL_CONSTANT * bodies.mass[j]) / (dist * dist * 1000000);
+        bodies.ax[i] += vel * Math.cos(angle) / PIXEL_UNIT;
+        bodies.ay[i] += vel * Math.sin(angle) / PIXEL_UNIT;
+    }
+
+    //Adds the acceleration every other body applies on bodies[i], the same sum as accumulatePull over each j
+    //but from the displacement and one inverse square root. softening2 is the squared Plummer softening length
+    //in pixels, 0 keeps the unsoftened force.
+    static void accumulatePulls(BodyStore bodies, int i, double softening2) {
+        double[] x = bodies.x;
+        double[] y = bodies.y;
+        double[] m = bodies.mass;
+        double px = x[i];
+        double py = y[i];
+        double sumX = 0;
+        double sumY = 0;
+        for(int j = 0; j < bodies.count; j++) {
+            if(j != i) {
+                double dx = x[j] - px;
+                double dy = y[j] - py;
+                double inv = 1 / Math.sqrt(dx * dx + dy * dy + softening2);
+                double a = m[j] * inv * inv * inv;
+                sumX += a * dx;
+                sumY += a * dy;
+            }
+        }
+        bodies.ax[i] += PIXEL_GRAVITY * sumX;
+        bodies.ay[i] += PIXEL_GRAVITY * sumY;
+    }
+
+    //Adds the accelerations of every pair to the store, visiting each unordered pair once and applying equal and
+    //opposite forces to both bodies, half the pair evaluations of accumulatePulls over every body
+    static void accumulatePairs(BodyStore bodies, double softening2) {
+        double[] x = bodies.x;
+        double[] y = bodies.y;
+        double[] m = bodies.mass;
+        double[] ax = bodies.ax;
+        double[] ay = bodies.ay;
+        int count = bodies.count;
+        for(int i = 0; i < count; i++) {
+            double px = x[i];
+            double py = y[i];
+            double mi = m[i];
+            double sumX = 0;
+            double sumY = 0;
+            for(int j = i + 1; j < count; j++) {
+                double dx = x[j] - px;
+                double dy = y[j] - py;
+                double inv = 1 / Math.sqrt(dx * dx + dy * dy + softening2);
+                double f = PIXEL_GRAVITY * inv * inv * inv;
+                double fx = f * dx;
+                double fy = f * dy;
+                sumX += m[j] * fx;
+                sumY += m[j] * fy;
+                ax[j] -= mi * fx;
+                ay[j] -= mi * fy;
+            }
+            ax[i] += sumX;
+            ay[i] += sumY;
+        }
+    }
+
+    //Returns float representing angle from p1 to p2
+    static float angleVector(PVector p1, PVector p2) {
+        return (float)Math.atan2(p1.y - p2.y, p1.x - p2.x);
+    }
+
+    //Returns float representing distance from p1 to p2
+    static float distVector(PVector p1, PVector p2) {
+        return PVector.dist(p1, p2) * PIXEL_UNIT;
+    }
+
+    static int pixelUnit(float kilometers) {
+        return (int)Math.floor(kilometers / PIXEL_UNIT);
+    }
+
+    static double convertSolarMass(float solarMasses) {
+        return solarMasses * SOLAR_MASS;
+    }
+
+    static double convertSolarRadii(float solarRadii) {
+        return solarRadii * SOLAR_RADIUS;
+    }
+
+    static double convertEarthMass(float earthMasses) {
+        return earthMasses * EARTH_MASS;
+    }
+
+    static double convertEarthRadii(float earthRadii) {
+        return earthRadii * EARTH_RADIUS;
+    }
+
+    static PVector stableOrbitInertia(Body  b1, Body b2) {
+        float angle = angleVector(b1.getPos(), b2.getPos());
+        double force = ((GRAVITATIONAL_CONSTANT * b1.getMass() * b2.getMass()) / (Math.pow(distVector(b1.getPos(), b2.getPos()), 2) * 1000));
+        double vel = -(force / b1.getMass()) / 1000;
+        return new PVector(((float)(vel * Math.cos(angle - Math.toRadians(90)) * (distVector(b1.getPos(), b2.getPos()) / PIXEL_UNIT / 2)) / PIXEL_UNIT), ((float)(vel * Math.sin(angle - Math.toRadians(90)) * (distVector(b1.getPos(), b2.getPos()) / PIXEL_UNIT))) / PIXEL_UNIT);
+    }
+
+    static boolean pointInsideBody(PVector p1, Body b1) {
+        return pointInsideBody(p1.x, p1.y, b1);
+    }
+
+    static boolean pointInsideBody(double x, double y, Body b1) {
+        double dist = Math.hypot(x - b1.getX(), y - b1.getY());
+        return Math.floor(dist) < b1.getPixelRadius();
+    }
+
+    //Returns a random float in [0, high)
+    static float random(Random random, float high) {
+        return random.nextFloat() * high;
+    }
+
+    //Returns a random float in [low, high)
+    static float random(Random random, float low, float high) {
+        return low + random.nextFloat() * (high - low);
+    }
+
+    //Maps value from the range start1..stop1 onto start2..stop2
+    static float map(float value, float start1, float stop1, float start2, float stop2) {
+        return start2 + (stop2 - start2) * ((value - start1) / (stop1 - start1));
+    }
+
+    //Packs an opaque RGB colour the same way Processing's color() does
+    static int color(int r, int g, int b) {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,391 @@
+package com.colin;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+//A star and its planets, stepped by update() with no dependency on a display
+public class StellarSystem {
+    //Spawn range used when there is no window to size the system from
+    static final float DEFAULT_SPAWN_RANGE = 640;
+
+    private final Random random;
+    private final BodyStore bodies;
+    private final ArrayList<SystemObserver> observers;
+    private final DirectSolver direct;
+    private final BarnesHutSolver tree;
+    private final ParticleMeshSolver mesh;
+    private final CollisionResolver collisions;
+    private final CollisionResolver.MergeListener mergeListener;
+    private final ArrayList<Body> survivors;
+    private final ArrayList<Body> absorbed;
+    private GravityMode gravityMode;
+    private ParallelForces parallelForces;
+    private boolean parallel;
+    private Integrator integrator;
+    private double timestep;
+    private boolean accelerationsValid;
+    private long steps;
+    private long forceEvaluations;
+    private Profiler profiler;
+    private PhaseTimer updateTimer = PhaseTimer.DISABLED;
+    private PhaseTimer gravityTimer = PhaseTimer.DISABLED;
+    private PhaseTimer collisionTimer = PhaseTimer.DISABLED;
+
+    //Creates an empty system
+    public StellarSystem() {
+        this(new Random());
+    }
+
+    //Creates an empty system whose generated bodies come from the seed. Stepping is deterministic for a given seed
+    //as long as setParallel stays the same: the parallel path sums every body's pulls on its own and the sequential
+    //path sums symmetric pairs, so the two differ in the last bits. The parallel result does not depend on the
+    //thread count.
+    public StellarSystem(long seed) {
+        this(new Random(seed));
+    }
+
+    private StellarSystem(Random random) {
+        this.random = random;
+        bodies = new BodyStore(16);
+        observers = new ArrayList<>();
+        direct = new DirectSolver();
+        tree = new BarnesHutSolver(StellarPhysics.PIXEL_GRAVITY);
+        mesh = new ParticleMeshSolver(StellarPhysics.PIXEL_GRAVITY);
+        collisions = new CollisionResolver();
+        survivors = new ArrayList<>();
+        absorbed = new ArrayList<>();
+        mergeListener = (survivor, body) -> {
+            survivors.add(survivor);
+            absorbed.add(body);
+        };
+        gravityMode = GravityMode.DIRECT;
+        parallelForces = new ParallelForces();
+        parallel = true;
+        integrator = new LeapfrogIntegrator();
+        timestep = 1;
+    }
+
+    //Creates a star at the origin with 1 to 13 planets within spawnRange of it
+    public StellarSystem(float spawnRange) {
+        this(new Random());
+        populate(spawnRange);
+    }
+
+    //Same as StellarSystem(spawnRange), generated from the seed so the same seed gives the same system
+    public StellarSystem(float spawnRange, long seed) {
+        this(new Random(seed));
+        populate(spawnRange);
+    }
+
+    private void populate(float spawnRange) {
+        addBody(new Star(0, 0, random));
+        genPlanets((int)Math.floor(StellarPhysics.random(random, 1, 14)), spawnRange);
+    }
+
+    public void update() {
+        long start = updateTimer.start();
+        updateBodies();
+        updateTimer.stop(start);
+        start = collisionTimer.start();
+        resolveCollisions();
+        collisionTimer.stop(start);
+        steps++;
+        for(int i = 0; i < observers.size(); i++) {
+            observers.get(i).stepped(this);
+        }
+    }
+
+    //Advances the system by the given number of steps
+    public void step(long count) {
+        for(long i = 0; i < count; i++) {
+            update();
+        }
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    //Used when restoring a checkpoint
+    void setSteps(long steps) {
+        this.steps = steps;
+    }
+
+    //Number of per-body force evaluations since the system was created
+    public long getForceEvaluations() {
+        return forceEvaluations;
+    }
+
+    private void updateBodies() {
+        if(!accelerationsValid && integrator.needsAccelerations()) {
+            computeAccelerations();
+        }
+        integrator.step(bodies, this, timestep);
+    }
+
+    //Fills store.ax/ay with the accelerations at the current positions
+    void computeAccelerations() {
+        applyGravity();
+        forceEvaluations += bodies.count;
+        accelerationsValid = true;
+    }
+
+    //Recomputes store.ax/ay for the first count slots in targets only, the other bodies keep their last accelerations
+    void computeAccelerations(int[] targets, int count) {
+        long start = gravityTimer.start();
+        BodyStore s = bodies;
+        ForceSolver solver = getSolver();
+        solver.prepare(s);
+        for(int k = 0; k < count; k++) {
+            s.ax[targets[k]] = 0;
+            s.ay[targets[k]] = 0;
+        }
+        if(parallel && count >= ParallelForces.MIN_BODIES) {
+            parallelForces.accumulate(solver, s, targets, count);
+        } else {
+            for(int k = 0; k < count; k++) {
+                solver.accumulate(s, targets[k]);
+            }
+        }
+        forceEvaluations += count;
+        gravityTimer.stop(start);
+    }
+
+    private void applyGravity() {
+        long start = gravityTimer.start();
+        BodyStore s = bodies;
+        ForceSolver solver = getSolver();
+        s.clearAcceleration();
+        solver.prepare(s);
+        if(parallel && s.count >= ParallelForces.MIN_BODIES) {
+            parallelForces.accumulate(solver, s);
+        } else {
+            solver.accumulateAll(s);
+        }
+        gravityTimer.stop(start);
+    }
+
+    ForceSolver getSolver() {
+        switch(gravityMode) {
+            case BARNES_HUT: {
+                return tree;
+            }
+            case PARTICLE_MESH: {
+                return mesh;
+            }
+            default : {
+                return direct;
+            }
+        }
+    }
+
+    Profiler getProfiler() {
+        return profiler;
+    }
+
+    //Times updateBodies, applyGravity and resolveCollisions into the profiler, null stops timing
+    void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        updateTimer = profiler == null ? PhaseTimer.DISABLED : profiler.updateBodies;
+        gravityTimer = profiler == null ? PhaseTimer.DISABLED : profiler.applyGravity;
+        collisionTimer = profiler == null ? PhaseTimer.DISABLED : profiler.resolveCollisions;
+    }
+
+    public GravityMode getGravityMode() {
+        return gravityMode;
+    }
+
+    public void setGravityMode(GravityMode gravityMode) {
+        this.gravityMode = gravityMode;
+        accelerationsValid = false;
+    }
+
+    void toggleGravityMode() {
+        GravityMode[] modes = GravityMode.values();
+        setGravityMode(modes[(gravityMode.ordinal() + 1) % modes.length]);
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    //Spreads force accumulation over the executor once the system is large enough, false forces the sequential path
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    //Replaces the default common-pool executor used by parallel force accumulation
+    public void setExecutor(ExecutorService executor, int parallelism) {
+        this.parallelForces = new ParallelForces(executor, parallelism);
+    }
+
+    //Kernel behind the direct mode, vectorised when the JVM has the incubator vector module
+    GravityKernel getGravityKernel() {
+        return direct.getKernel();
+    }
+
+    public double getSoftening() {
+        return direct.getSoftening();
+    }
+
+    //Plummer softening length in pixels for both gravity modes, 0 by default
+    public void setSoftening(double softening) {
+        direct.setSoftening(softening);
+        tree.setSoftening(softening);
+        mesh.setSoftening(softening);
+        accelerationsValid = false;
+    }
+
+    //Cells along each side of the particle-mesh grid, a power of two
+    public void setMeshGrid(int grid) {
+        mesh.setGridSize(grid);
+        accelerationsValid = false;
+    }
+
+    //Radius in mesh cells within which the particle-mesh mode sums pairs directly, 0 for the mesh force alone
+    public void setMeshShortRange(double cells) {
+        mesh.setShortRange(cells);
+        accelerationsValid = false;
+    }
+
+    //Opening angle used by the Barnes-Hut mode, 0 degenerates to direct summation
+    public void setTreeTheta(double theta) {
+        tree.setTheta(theta);
+        accelerationsValid = false;
+    }
+
+    Integrator getIntegrator() {
+        return integrator;
+    }
+
+    void setIntegrator(Integrator integrator) {
+        this.integrator = integrator;
+        accelerationsValid = false;
+    }
+
+    //Cycles legacy, leapfrog, velocity Verlet, block timestep leapfrog and Kepler
+    void cycleIntegrator() {
+        if(integrator instanceof LegacyIntegrator) {
+            setIntegrator(new LeapfrogIntegrator());
+        } else if(integrator instanceof LeapfrogIntegrator) {
+            setIntegrator(new VelocityVerletIntegrator());
+        } else if(integrator instanceof VelocityVerletIntegrator) {
+            setIntegrator(new BlockTimestepIntegrator());
+        } else if(integrator instanceof BlockTimestepIntegrator) {
+            setIntegrator(new KeplerIntegrator());
+        } else {
+            setIntegrator(new LegacyIntegrator());
+        }
+    }
+
+    public double getTimestep() {
+        return timestep;
+    }
+
+    //Step length in frames of the original simulation, 1 reproduces the old per-frame step.
+    //With block timesteps this is the longest step any body takes.
+    public void setTimestep(double timestep) {
+        if(!(timestep > 0)) {
+            throw new IllegalArgumentException("Timestep must be positive: " + timestep);
+        }
+        this.timestep = timestep;
+    }
+
+    //Kinetic plus potential energy in pixel units, O(n^2) so only meant for diagnostics
+    public double totalEnergy() {
+        BodyStore s = bodies;
+        double energy = 0;
+        for(int i = 0; i < s.count; i++) {
+            energy += 0.5 * s.mass[i] * (s.vx[i] * s.vx[i] + s.vy[i] * s.vy[i]);
+            for(int j = i + 1; j < s.count; j++) {
+                double r = Math.hypot(s.x[i] - s.x[j], s.y[i] - s.y[j]);
+                energy -= StellarPhysics.PIXEL_GRAVITY * s.mass[i] * s.mass[j] / r;
+            }
+        }
+        return energy;
+    }
+
+    public ArrayList<Body> getBodies() {
+        ArrayList<Body> list = new ArrayList<>(bodies.size());
+        for(int i = 0; i < bodies.size(); i++) {
+            list.add(bodies.get(i));
+        }
+        return list;
+    }
+
+    //Generator for bodies made for this system, seeded when the system is
+    Random getRandom() {
+        return random;
+    }
+
+    BodyStore getStore() {
+        return bodies;
+    }
+
+    public void addBody(Body body) {
+        bodies.add(body);
+        accelerationsValid = false;
+        for(int i = 0; i < observers.size(); i++) {
+            observers.get(i).bodyAdded(this, body);
+        }
+    }
+
+    //Removes every body, notifying observers of each
+    public void clear() {
+        while(bodies.count > 0) {
+            Body body = bodies.get(bodies.count - 1);
+            bodies.remove(bodies.count - 1);
+            accelerationsValid = false;
+            for(int i = 0; i < observers.size(); i++) {
+                observers.get(i).bodyRemoved(this, body);
+            }
+        }
+    }
+
+    public void addObserver(SystemObserver observer) {
+        observers.add(observer);
+    }
+
+    public void removeObserver(SystemObserver observer) {
+        observers.remove(observer);
+    }
+
+    //Adds count planets in stable orbits around the first star, scattered up to spawnRange from it on each axis
+    public void genPlanets(int count, float spawnRange) {
+        Star star = null;
+        for(int i = 0; i < bodies.size() && star == null; i++) {
+            if(bodies.get(i) instanceof Star) {
+                star = (Star)bodies.get(i);
+            }
+        }
+        if(star == null) {
+            throw new IllegalStateException("Planets need a star to orbit");
+        }
+        for(int i = 0; i < count; i++) {
+            int randX = (StellarPhysics.random(random, 1) < 0.5) ? 1 : -1;
+            int randY = (StellarPhysics.random(random, 1) < 0.5) ? 1 : -1;
+            float x = (float)(Math.floor(StellarPhysics.random(random, spawnRange) * randX) + (randX * (star.getPixelRadius() / 2)) + star.getX());
+            float y = (float)(Math.floor(StellarPhysics.random(random, spawnRange) * randY) + (randY * (star.getPixelRadius() / 2)) + star.getY());
+            addBody(new Planet(x, y, star, random));
+        }
+    }
+
+    //Merges every body whose centre lies inside another one, the heavier body absorbs the lighter
+    void resolveCollisions() {
+        if(collisions.resolve(bodies, mergeListener) == 0) {
+            return;
+        }
+        accelerationsValid = false;
+        for(int i = 0; i < absorbed.size(); i++) {
+            for(int k = 0; k < observers.size(); k++) {
+                observers.get(k).bodiesMerged(this, survivors.get(i), absorbed.get(i));
+            }
+            for(int k = 0; k < observers.size(); k++) {
+                observers.get(k).bodyRemoved(this, absorbed.get(i));
+            }
+        }
+        survivors.clear();
+        absorbed.clear();
+    }
+}
@@ -0,0 +1,19 @@
+package com.colin;
+
+//Receives events from a StellarSystem. Rendering hooks in through here so the engine never needs a display
+public interface SystemObserver {
+    default void bodyAdded(StellarSystem system, Body body) {
+    }
+
+    //Called for absorbed bodies after bodiesMerged, and for every body when the system is cleared
+    default void bodyRemoved(StellarSystem system, Body body) {
+    }
+
+    //Called when absorbed merges into survivor, before absorbed is removed. Survivor's mass and radius have changed.
+    default void bodiesMerged(StellarSystem system, Body survivor, Body absorbed) {
+    }
+
+    //Called after every completed step
+    default void stepped(StellarSystem system) {
+    }
+}
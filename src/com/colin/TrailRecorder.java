@@ -0,0 +1,112 @@
+package com.colin;
+
+import java.util.IdentityHashMap;
+
+//Keeps the recent path of every body in a fixed-size ring buffer, sampled every few steps.
+//Memory is bounded at 8 bytes per point per body, and a removed body's trail is dropped with it. The recorder
+//belongs to the thread stepping the system, the window draws the copies snapshots take of the trails.
+public class TrailRecorder implements SystemObserver {
+    static final int DEFAULT_LENGTH = 256;
+    static final int DEFAULT_INTERVAL = 4;
+    //Points of each trail copied into a snapshot for drawing
+    static final int SNAPSHOT_POINTS = 64;
+
+    private final IdentityHashMap<Body, Trail> trails;
+    private int length;
+    private int interval;
+
+    TrailRecorder() {
+        this(DEFAULT_LENGTH, DEFAULT_INTERVAL);
+    }
+
+    TrailRecorder(int length, int interval) {
+        this.trails = new IdentityHashMap<>();
+        setLength(length);
+        setInterval(interval);
+    }
+
+    public void stepped(StellarSystem system) {
+        if(system.getSteps() % interval != 0) {
+            return;
+        }
+        BodyStore bodies = system.getStore();
+        for(int i = 0; i < bodies.count; i++) {
+            Trail trail = trails.get(bodies.views[i]);
+            if(trail == null) {
+                trail = new Trail(length);
+                trails.put(bodies.views[i], trail);
+            }
+            trail.add((float)bodies.x[i], (float)bodies.y[i]);
+        }
+    }
+
+    public void bodyRemoved(StellarSystem system, Body body) {
+        trails.remove(body);
+    }
+
+    //Returns the trail of the body, or null if it has not been sampled yet
+    Trail get(Body body) {
+        return trails.get(body);
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    //Points kept per body, changing it drops the existing trails
+    void setLength(int length) {
+        if(length < 2) {
+            throw new IllegalArgumentException("A trail needs at least 2 points: " + length);
+        }
+        this.length = length;
+        trails.clear();
+    }
+
+    int getInterval() {
+        return interval;
+    }
+
+    //Steps between samples
+    void setInterval(int interval) {
+        if(interval < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least 1: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    void clear() {
+        trails.clear();
+    }
+
+    static class Trail {
+        private final float[] x;
+        private final float[] y;
+        private int head;
+        private int size;
+
+        Trail(int capacity) {
+            x = new float[capacity];
+            y = new float[capacity];
+        }
+
+        void add(float px, float py) {
+            x[head] = px;
+            y[head] = py;
+            head = (head + 1) % x.length;
+            size = Math.min(size + 1, x.length);
+        }
+
+        int size() {
+            return size;
+        }
+
+        //Point i counted from the oldest
+        float getX(int i) {
+            return x[(head - size + i + x.length) % x.length];
+        }
+
+        float getY(int i) {
+            return y[(head - size + i + y.length) % y.length];
+        }
+    }
+}
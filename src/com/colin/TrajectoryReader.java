@@ -0,0 +1,342 @@
+package com.colin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//Plays back a file written by TrajectoryRecorder without stepping any physics. The file is memory mapped a
+//keyframe segment at a time, so seeking to any frame decodes at most one keyframe interval of deltas.
+//Bodies are rebuilt from their recorded properties, so the GUI can show them as it would live ones.
+public class TrajectoryReader {
+    private final FileChannel channel;
+    private final int quantum;
+    private final int keyframeInterval;
+    private int frameCount;
+    private int[] keyframeFrames = new int[0];
+    private long[] keyframeOffsets = new long[0];
+    private int keyframes;
+    private long end;
+
+    private ByteBuffer segment;
+    private int segmentIndex = -1;
+    private int frame = -1;
+    private long step;
+
+    private int count;
+    private int[] alive = new int[0];
+    private long[] qx = new long[0];
+    private long[] qy = new long[0];
+    private Body[] views = new Body[0];
+
+    TrajectoryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryRecorder.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, 0);
+        if(header.getInt(0) != TrajectoryRecorder.MAGIC) {
+            channel.close();
+            throw new IOException("Not a trajectory recording");
+        }
+        if(header.getShort(4) < 1 || header.getShort(4) > TrajectoryRecorder.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported recording version " + header.getShort(4));
+        }
+        quantum = header.getInt(8);
+        keyframeInterval = header.getInt(12);
+        if(!readIndex()) {
+            scan();
+        }
+        if(keyframes == 0) {
+            channel.close();
+            throw new IOException("Recording has no frames");
+        }
+        seek(0);
+    }
+
+    int getFrameCount() {
+        return frameCount;
+    }
+
+    //Frame decoded last
+    int getFrame() {
+        return frame;
+    }
+
+    long getStep() {
+        return step;
+    }
+
+    //Decodes the given frame, starting from the keyframe before it
+    void seek(int target) throws IOException {
+        target = Math.max(0, Math.min(target, frameCount - 1));
+        if(target < frame || frame < 0 || target / keyframeInterval != frame / keyframeInterval) {
+            int k = Arrays.binarySearch(keyframeFrames, 0, keyframes, target);
+            k = k >= 0 ? k : -k - 2;
+            mapSegment(Math.max(k, 0));
+            frame = keyframeFrames[segmentIndex] - 1;
+        }
+        while(frame < target && next()) {
+        }
+    }
+
+    //Decodes the frame after the current one, returns false at the end of the recording
+    boolean next() throws IOException {
+        if(frame + 1 >= frameCount) {
+            return false;
+        }
+        if(!segment.hasRemaining()) {
+            if(segmentIndex + 1 >= keyframes) {
+                return false;
+            }
+            mapSegment(segmentIndex + 1);
+        }
+        byte type = segment.get();
+        int length = segment.getInt();
+        int payloadEnd = segment.position() + length;
+        if(type == TrajectoryRecorder.KEYFRAME) {
+            readKeyframe();
+        } else if(type == TrajectoryRecorder.DELTA) {
+            readDelta();
+        } else {
+            segment.position(payloadEnd);
+            return false;
+        }
+        segment.position(payloadEnd);
+        frame++;
+        return true;
+    }
+
+    //Copies the decoded frame into the snapshot, for the GUI to draw and pick from
+    void fill(Snapshot snapshot) {
+        snapshot.ensureCapacity(count);
+        snapshot.count = count;
+        snapshot.trailCount = 0;
+        for(int i = 0; i < count; i++) {
+            Body view = views[alive[i]];
+            snapshot.x[i] = (float)((double)qx[i] / quantum);
+            snapshot.y[i] = (float)((double)qy[i] / quantum);
+            snapshot.pixelRadius[i] = view.getPixelRadius();
+            snapshot.chroma[i] = view.getChroma();
+            snapshot.views[i] = view;
+            //The bodies of a recording belong to the reader, not a running system
+            snapshot.info[i] = view.getInfo();
+        }
+        snapshot.clearTail();
+        snapshot.steps = step;
+        snapshot.nanoTime = System.nanoTime();
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    private void readKeyframe() {
+        step = getVarLong();
+        count = 0;
+        int n = getVarInt();
+        for(int i = 0; i < n; i++) {
+            int id = getVarInt();
+            readProperties(id);
+            append(id);
+            qx[i] = unzigzag(getVarLong());
+            qy[i] = unzigzag(getVarLong());
+        }
+    }
+
+    private void readDelta() {
+        for(byte event = segment.get(); event != 0; event = segment.get()) {
+            int id = getVarInt();
+            switch(event) {
+                case TrajectoryRecorder.BIRTH: {
+                    readProperties(id);
+                    append(id);
+                    break;
+                }
+                case TrajectoryRecorder.DEATH: {
+                    remove(id);
+                    break;
+                }
+                case TrajectoryRecorder.CHANGE: {
+                    Body view = views[id];
+                    view.setMass(segment.getDouble());
+                    view.setRadius(segment.getDouble());
+                    view.setDensity(segment.getDouble());
+                    view.calcPixelRadius();
+                    break;
+                }
+                default : {
+                    throw new IllegalStateException("Unknown event " + event + " in frame " + (frame + 1));
+                }
+            }
+        }
+        step = getVarLong();
+        for(int i = 0; i < count; i++) {
+            qx[i] += unzigzag(getVarLong());
+            qy[i] += unzigzag(getVarLong());
+        }
+    }
+
+    //Rebuilds the body for the id, reusing the one already made so selection survives seeking
+    private void readProperties(int id) {
+        byte kind = segment.get();
+        byte classification = segment.get();
+        int chroma = segment.getInt();
+        double mass = segment.getDouble();
+        double radius = segment.getDouble();
+        double density = segment.getDouble();
+        double tempK = segment.getDouble();
+        if(id >= views.length) {
+            views = Arrays.copyOf(views, Math.max(id + 1, views.length * 2));
+        }
+        Body view = views[id];
+        if(view == null || Checkpoint.kindOf(view) != kind) {
+            views[id] = Checkpoint.newBody(kind, classification, chroma, mass, radius, density, tempK);
+        } else {
+            view.setMass(mass);
+            view.setRadius(radius);
+            view.setDensity(density);
+            view.calcPixelRadius();
+        }
+    }
+
+    private void append(int id) {
+        if(count == alive.length) {
+            alive = Arrays.copyOf(alive, Math.max(16, count * 2));
+            qx = Arrays.copyOf(qx, alive.length);
+            qy = Arrays.copyOf(qy, alive.length);
+        }
+        alive[count] = id;
+        qx[count] = 0;
+        qy[count] = 0;
+        count++;
+    }
+
+    //Removes the id keeping the order, searching from the end as clearing a system removes the last body first
+    private void remove(int id) {
+        for(int i = count - 1; i >= 0; i--) {
+            if(alive[i] == id) {
+                System.arraycopy(alive, i + 1, alive, i, count - i - 1);
+                System.arraycopy(qx, i + 1, qx, i, count - i - 1);
+                System.arraycopy(qy, i + 1, qy, i, count - i - 1);
+                count--;
+                return;
+            }
+        }
+    }
+
+    private void mapSegment(int index) throws IOException {
+        long start = keyframeOffsets[index];
+        long stop = index + 1 < keyframes ? keyframeOffsets[index + 1] : end;
+        if(stop - start > Integer.MAX_VALUE) {
+            throw new IOException("Keyframe segment over 2GB, record with a shorter keyframe interval");
+        }
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, start, stop - start);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segmentIndex = index;
+    }
+
+    private boolean readIndex() throws IOException {
+        long size = channel.size();
+        if(size < TrajectoryRecorder.HEADER_BYTES + TrajectoryRecorder.TRAILER_BYTES) {
+            return false;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TrajectoryRecorder.TRAILER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(trailer, size - TrajectoryRecorder.TRAILER_BYTES);
+        if(trailer.getInt(12) != TrajectoryRecorder.MAGIC) {
+            return false;
+        }
+        end = trailer.getLong(0);
+        frameCount = trailer.getInt(8);
+        ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, end, size - TrajectoryRecorder.TRAILER_BYTES - end).order(ByteOrder.LITTLE_ENDIAN);
+        if(index.get() != TrajectoryRecorder.INDEX) {
+            return false;
+        }
+        index.getInt();
+        segment = index;
+        int n = getVarInt();
+        for(int i = 0; i < n; i++) {
+            addKeyframe(getVarInt(), getVarLong(), segment.getLong());
+        }
+        segment = null;
+        return true;
+    }
+
+    //Rebuilds the index from the frame headers of a recording that was not closed, dropping a partial last frame
+    private void scan() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer stepBytes = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN);
+        long size = channel.size();
+        long position = TrajectoryRecorder.HEADER_BYTES;
+        frameCount = 0;
+        while(position + 5 <= size) {
+            header.clear();
+            readFully(header, position);
+            byte type = header.get(0);
+            long next = position + 5 + header.getInt(1);
+            if(next > size || (type != TrajectoryRecorder.KEYFRAME && type != TrajectoryRecorder.DELTA)) {
+                break;
+            }
+            if(type == TrajectoryRecorder.KEYFRAME) {
+                stepBytes.clear();
+                readFully(stepBytes, position + 5);
+                addKeyframe(frameCount, readVarLong(stepBytes), position);
+            }
+            frameCount++;
+            position = next;
+        }
+        end = position;
+    }
+
+    private void addKeyframe(int frameNumber, long keyframeStep, long offset) {
+        if(keyframes == keyframeFrames.length) {
+            int size = Math.max(16, keyframes * 2);
+            keyframeFrames = Arrays.copyOf(keyframeFrames, size);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, size);
+        }
+        keyframeFrames[keyframes] = frameNumber;
+        keyframeOffsets[keyframes] = offset;
+        keyframes++;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    private int getVarInt() {
+        int value = 0;
+        for(int shift = 0; ; shift += 7) {
+            byte b = segment.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private long getVarLong() {
+        return readVarLong(segment);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long)(b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
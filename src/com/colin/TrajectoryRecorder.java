@@ -0,0 +1,362 @@
+package com.colin;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+
+//Streams the positions of every body to a file each recorded step, along with births, deaths and the mass
+//changes merges cause, so a run can be replayed or analysed without stepping it again.
+//
+//Positions are quantised to 1/QUANTUM pixel as longs, so bodies flung far out keep their place rather than
+//wrapping. Most frames hold the change since the previous frame as zigzag varints, every keyframeInterval frames a keyframe holds the full state instead so a reader can start there.
+//Bodies are identified by an id given on their birth, and a delta frame lists positions in the order of the
+//store, which only changes through births (appended) and deaths (removed keeping the order).
+//
+//File: HEADER_BYTES header (magic, version, quantum, keyframe interval), then frames of a type byte, an int
+//payload length and the payload. A KEYFRAME holds the step, the count and for each body its id, properties
+//and absolute position. A DELTA holds events (BIRTH, DEATH or CHANGE, ended by a 0 byte), the step and the
+//position changes. close() appends an INDEX of keyframes, then the index offset, the frame count and the magic.
+//
+//Frames are encoded on the stepping thread into pooled buffers and written by a background thread, so
+//recording does not wait on the disk or allocate unless a frame outgrows its buffer.
+public class TrajectoryRecorder implements SystemObserver {
+    static final int MAGIC = 0x52545453;
+    //Version 1 quantised to int, its varints read the same as version 2's for any position that fit
+    static final short VERSION = 2;
+    static final int HEADER_BYTES = 32;
+    static final int TRAILER_BYTES = 16;
+    static final int QUANTUM = 64;
+    static final int DEFAULT_KEYFRAME_INTERVAL = 128;
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    static final byte INDEX = 3;
+    static final byte BIRTH = 1;
+    static final byte DEATH = 2;
+    static final byte CHANGE = 3;
+    static final int BUFFER_BYTES = 4 * 1024 * 1024;
+    private static final int BUFFERS = 3;
+    //Largest encoding of a body's properties in a birth or keyframe entry
+    private static final int PROPERTY_BYTES = 5 + 2 + 4 + 8 * 4 + 10;
+
+    private final FileChannel channel;
+    private final int interval;
+    private final int keyframeInterval;
+    private final IdentityHashMap<Body, Integer> ids;
+    private long[] lastX = new long[0];
+    private long[] lastY = new long[0];
+    private int nextId;
+    private int frames;
+    private final ArrayList<long[]> keyframes;
+
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final ArrayBlockingQueue<ByteBuffer> full;
+    private final Thread writer;
+    private volatile IOException failure;
+    private ByteBuffer out;
+    private long flushed;
+    private int frameStart = -1;
+    private boolean closed;
+
+    //Creates the file and records the current state of the system as the first keyframe,
+    //must be called from the thread stepping the system before adding the recorder as an observer
+    TrajectoryRecorder(Path path, StellarSystem system) throws IOException {
+        this(path, system, 1, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    TrajectoryRecorder(Path path, StellarSystem system, int interval, int keyframeInterval) throws IOException {
+        if(interval < 1 || keyframeInterval < 1) {
+            throw new IllegalArgumentException("Intervals must be at least 1");
+        }
+        this.interval = interval;
+        this.keyframeInterval = keyframeInterval;
+        this.ids = new IdentityHashMap<>();
+        this.keyframes = new ArrayList<>();
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.free = new ArrayBlockingQueue<>(BUFFERS);
+        this.full = new ArrayBlockingQueue<>(BUFFERS);
+        for(int i = 0; i < BUFFERS - 1; i++) {
+            free.add(newBuffer(BUFFER_BYTES));
+        }
+        out = newBuffer(BUFFER_BYTES);
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short)0);
+        out.putInt(QUANTUM);
+        out.putInt(keyframeInterval);
+        out.position(HEADER_BYTES);
+
+        writer = new Thread(this::write, "Trajectory writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        BodyStore bodies = system.getStore();
+        for(int i = 0; i < bodies.count; i++) {
+            idOf(bodies.views[i]);
+        }
+        recordFrame(system);
+    }
+
+    public void stepped(StellarSystem system) {
+        if(!closed && system.getSteps() % interval == 0) {
+            recordFrame(system);
+        }
+    }
+
+    public void bodyAdded(StellarSystem system, Body body) {
+        int id = idOf(body);
+        if(recordsEvents()) {
+            beginDelta();
+            ensure(PROPERTY_BYTES + 1);
+            out.put(BIRTH);
+            putVarInt(id);
+            putProperties(body);
+        }
+    }
+
+    public void bodyRemoved(StellarSystem system, Body body) {
+        Integer id = ids.remove(body);
+        if(id != null && recordsEvents()) {
+            beginDelta();
+            ensure(6);
+            out.put(DEATH);
+            putVarInt(id);
+        }
+    }
+
+    public void bodiesMerged(StellarSystem system, Body survivor, Body absorbed) {
+        Integer id = ids.get(survivor);
+        if(id != null && recordsEvents()) {
+            beginDelta();
+            ensure(6 + 24);
+            out.put(CHANGE);
+            putVarInt(id);
+            out.putDouble(survivor.getMass());
+            out.putDouble(survivor.getRadius());
+            out.putDouble(survivor.getDensity());
+        }
+    }
+
+    int getFrames() {
+        return frames;
+    }
+
+    //Flushes the remaining frames, writes the keyframe index and closes the file
+    void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        if(frameStart >= 0) {
+            //Events after the last frame have no positions to go with, drop them
+            out.position(frameStart);
+            frameStart = -1;
+        }
+        ensure(5 + 5 + keyframes.size() * 25 + TRAILER_BYTES);
+        long indexOffset = flushed + out.position();
+        int start = startFrame(INDEX);
+        putVarInt(keyframes.size());
+        for(long[] keyframe : keyframes) {
+            putVarInt((int)keyframe[0]);
+            putVarLong(keyframe[1]);
+            out.putLong(keyframe[2]);
+        }
+        endFrame(start);
+        out.putLong(indexOffset);
+        out.putInt(frames);
+        out.putInt(MAGIC);
+        flush(false);
+        try {
+            full.put(ByteBuffer.allocate(0));
+            writer.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    private boolean recordsEvents() {
+        //The next frame being a keyframe holds the whole state, so events before it are not needed
+        return !closed && frames % keyframeInterval != 0;
+    }
+
+    private void recordFrame(StellarSystem system) {
+        BodyStore bodies = system.getStore();
+        if(frames % keyframeInterval == 0) {
+            if(frameStart >= 0) {
+                out.position(frameStart);
+                frameStart = -1;
+            }
+            ensure(5 + 10 + 5 + bodies.count * (PROPERTY_BYTES + 20));
+            keyframes.add(new long[] {frames, system.getSteps(), flushed + out.position()});
+            int start = startFrame(KEYFRAME);
+            putVarLong(system.getSteps());
+            putVarInt(bodies.count);
+            for(int i = 0; i < bodies.count; i++) {
+                int id = idOf(bodies.views[i]);
+                putVarInt(id);
+                putProperties(bodies.views[i]);
+                long qx = quantise(bodies.x[i]);
+                long qy = quantise(bodies.y[i]);
+                putVarLong(zigzag(qx));
+                putVarLong(zigzag(qy));
+                lastX[id] = qx;
+                lastY[id] = qy;
+            }
+            endFrame(start);
+        } else {
+            beginDelta();
+            ensure(1 + 10 + bodies.count * 20);
+            out.put((byte)0);
+            putVarLong(system.getSteps());
+            for(int i = 0; i < bodies.count; i++) {
+                int id = idOf(bodies.views[i]);
+                long qx = quantise(bodies.x[i]);
+                long qy = quantise(bodies.y[i]);
+                putVarLong(zigzag(qx - lastX[id]));
+                putVarLong(zigzag(qy - lastY[id]));
+                lastX[id] = qx;
+                lastY[id] = qy;
+            }
+            endFrame(frameStart);
+            frameStart = -1;
+        }
+        frames++;
+        if(out.remaining() < out.capacity() / 4) {
+            flush(true);
+        }
+    }
+
+    private int idOf(Body body) {
+        Integer id = ids.get(body);
+        if(id != null) {
+            return id;
+        }
+        int next = nextId++;
+        ids.put(body, next);
+        if(next >= lastX.length) {
+            lastX = Arrays.copyOf(lastX, Math.max(16, lastX.length * 2));
+            lastY = Arrays.copyOf(lastY, lastX.length);
+        }
+        lastX[next] = 0;
+        lastY[next] = 0;
+        return next;
+    }
+
+    private void beginDelta() {
+        if(frameStart < 0) {
+            ensure(5);
+            frameStart = startFrame(DELTA);
+        }
+    }
+
+    private int startFrame(byte type) {
+        int start = out.position();
+        out.put(type);
+        out.putInt(0);
+        return start;
+    }
+
+    private void endFrame(int start) {
+        out.putInt(start + 1, out.position() - start - 5);
+    }
+
+    private void putProperties(Body body) {
+        out.put(Checkpoint.kindOf(body));
+        out.put(Checkpoint.classificationOf(body));
+        out.putInt(body.getChroma());
+        out.putDouble(body.getMass());
+        out.putDouble(body.getRadius());
+        out.putDouble(body.getDensity());
+        out.putDouble(Checkpoint.tempOf(body));
+    }
+
+    static long quantise(double coordinate) {
+        return Math.round(coordinate * QUANTUM);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void putVarInt(int value) {
+        while((value & ~0x7F) != 0) {
+            out.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    private void putVarLong(long value) {
+        while((value & ~0x7FL) != 0) {
+            out.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    //Makes room for bytes more, handing the buffer to the writer between frames or growing it within one
+    private void ensure(int bytes) {
+        if(out.remaining() >= bytes) {
+            return;
+        }
+        if(frameStart < 0 && out.position() > 0 && bytes <= out.capacity()) {
+            flush(true);
+            if(out.remaining() >= bytes) {
+                return;
+            }
+        }
+        ByteBuffer grown = newBuffer(Math.max(out.capacity() * 2, out.position() + bytes));
+        out.flip();
+        grown.put(out);
+        out = grown;
+    }
+
+    private void flush(boolean next) {
+        out.flip();
+        flushed += out.remaining();
+        try {
+            full.put(out);
+            out = next ? free.take() : null;
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording", e);
+        }
+    }
+
+    private void write() {
+        try {
+            while(true) {
+                ByteBuffer buffer = full.take();
+                if(buffer.capacity() == 0) {
+                    return;
+                }
+                try {
+                    while(buffer.hasRemaining() && failure == null) {
+                        channel.write(buffer);
+                    }
+                } catch(IOException e) {
+                    failure = e;
+                }
+                //A buffer grown for a large frame stays in the pool in place of the one it replaced
+                buffer.clear();
+                free.put(buffer);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,114 @@
+package com.colin;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//StellarPhysics.accumulatePulls and accumulatePairs with the source bodies spread over SIMD lanes, the bodies
+//left over after the last full vector go through the scalar loop. Only loaded through GravityKernel.select(),
+//so nothing else may refer to this class directly.
+class VectorGravityKernel implements GravityKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    VectorGravityKernel() {
+        if(SPECIES.length() < 2) {
+            throw new UnsupportedOperationException("No SIMD lanes for doubles");
+        }
+    }
+
+    //Sources before and after i in separate runs, so the body itself never lands in a lane
+    public void accumulatePulls(BodyStore bodies, int i, double softening2) {
+        accumulatePulls(bodies, i, 0, i, softening2);
+        accumulatePulls(bodies, i, i + 1, bodies.count, softening2);
+    }
+
+    private static void accumulatePulls(BodyStore bodies, int i, int from, int to, double softening2) {
+        double[] x = bodies.x;
+        double[] y = bodies.y;
+        double[] m = bodies.mass;
+        double px = x[i];
+        double py = y[i];
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+        DoubleVector soft = DoubleVector.broadcast(SPECIES, softening2);
+        DoubleVector vpx = DoubleVector.broadcast(SPECIES, px);
+        DoubleVector vpy = DoubleVector.broadcast(SPECIES, py);
+        DoubleVector sumX = DoubleVector.zero(SPECIES);
+        DoubleVector sumY = DoubleVector.zero(SPECIES);
+        int j = from;
+        for(int bound = from + SPECIES.loopBound(to - from); j < bound; j += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(vpx);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(vpy);
+            DoubleVector inv = one.div(dx.mul(dx).add(dy.mul(dy)).add(soft).sqrt());
+            DoubleVector a = DoubleVector.fromArray(SPECIES, m, j).mul(inv).mul(inv).mul(inv);
+            sumX = sumX.add(a.mul(dx));
+            sumY = sumY.add(a.mul(dy));
+        }
+        double tailX = 0;
+        double tailY = 0;
+        for(; j < to; j++) {
+            double dx = x[j] - px;
+            double dy = y[j] - py;
+            double inv = 1 / Math.sqrt(dx * dx + dy * dy + softening2);
+            double a = m[j] * inv * inv * inv;
+            tailX += a * dx;
+            tailY += a * dy;
+        }
+        bodies.ax[i] += StellarPhysics.PIXEL_GRAVITY * (sumX.reduceLanes(VectorOperators.ADD) + tailX);
+        bodies.ay[i] += StellarPhysics.PIXEL_GRAVITY * (sumY.reduceLanes(VectorOperators.ADD) + tailY);
+    }
+
+    public void accumulatePairs(BodyStore bodies, double softening2) {
+        double[] x = bodies.x;
+        double[] y = bodies.y;
+        double[] m = bodies.mass;
+        double[] ax = bodies.ax;
+        double[] ay = bodies.ay;
+        int count = bodies.count;
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+        DoubleVector soft = DoubleVector.broadcast(SPECIES, softening2);
+        for(int i = 0; i < count; i++) {
+            double px = x[i];
+            double py = y[i];
+            double mi = m[i];
+            DoubleVector vpx = DoubleVector.broadcast(SPECIES, px);
+            DoubleVector vpy = DoubleVector.broadcast(SPECIES, py);
+            DoubleVector vmi = DoubleVector.broadcast(SPECIES, mi);
+            DoubleVector sumX = DoubleVector.zero(SPECIES);
+            DoubleVector sumY = DoubleVector.zero(SPECIES);
+            int j = i + 1;
+            for(int bound = j + SPECIES.loopBound(count - j); j < bound; j += SPECIES.length()) {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(vpx);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(vpy);
+                DoubleVector inv = one.div(dx.mul(dx).add(dy.mul(dy)).add(soft).sqrt());
+                DoubleVector f = inv.mul(inv).mul(inv).mul(StellarPhysics.PIXEL_GRAVITY);
+                DoubleVector fx = f.mul(dx);
+                DoubleVector fy = f.mul(dy);
+                DoubleVector mj = DoubleVector.fromArray(SPECIES, m, j);
+                sumX = sumX.add(mj.mul(fx));
+                sumY = sumY.add(mj.mul(fy));
+                DoubleVector.fromArray(SPECIES, ax, j).sub(vmi.mul(fx)).intoArray(ax, j);
+                DoubleVector.fromArray(SPECIES, ay, j).sub(vmi.mul(fy)).intoArray(ay, j);
+            }
+            double tailX = 0;
+            double tailY = 0;
+            for(; j < count; j++) {
+                double dx = x[j] - px;
+                double dy = y[j] - py;
+                double inv = 1 / Math.sqrt(dx * dx + dy * dy + softening2);
+                double f = StellarPhysics.PIXEL_GRAVITY * inv * inv * inv;
+                double fx = f * dx;
+                double fy = f * dy;
+                tailX += m[j] * fx;
+                tailY += m[j] * fy;
+                ax[j] -= mi * fx;
+                ay[j] -= mi * fy;
+            }
+            ax[i] += sumX.reduceLanes(VectorOperators.ADD) + tailX;
+            ay[i] += sumY.reduceLanes(VectorOperators.ADD) + tailY;
+        }
+    }
+
+    public String toString() {
+        return "vector, " + SPECIES.length() + " lanes";
+    }
+}
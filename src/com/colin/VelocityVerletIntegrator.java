@@ -0,0 +1,33 @@
+package com.colin;
+
+import java.util.Arrays;
+
+//Velocity Verlet, positions from a second order Taylor step and velocities from the mean of old and new acceleration
+class VelocityVerletIntegrator implements Integrator {
+    private double[] oldAx = new double[0];
+    private double[] oldAy = new double[0];
+
+    public void step(BodyStore bodies, StellarSystem system, double dt) {
+        if(oldAx.length < bodies.count) {
+            oldAx = Arrays.copyOf(oldAx, Math.max(bodies.count, oldAx.length * 2));
+            oldAy = Arrays.copyOf(oldAy, oldAx.length);
+        }
+        double half = dt / 2;
+        double halfSquared = dt * dt / 2;
+        for(int i = 0; i < bodies.count; i++) {
+            bodies.x[i] += bodies.vx[i] * dt + bodies.ax[i] * halfSquared;
+            bodies.y[i] += bodies.vy[i] * dt + bodies.ay[i] * halfSquared;
+            oldAx[i] = bodies.ax[i];
+            oldAy[i] = bodies.ay[i];
+        }
+        system.computeAccelerations();
+        for(int i = 0; i < bodies.count; i++) {
+            bodies.vx[i] += (oldAx[i] + bodies.ax[i]) * half;
+            bodies.vy[i] += (oldAy[i] + bodies.ay[i]) * half;
+        }
+    }
+
+    public String toString() {
+        return "Velocity Verlet";
+    }
+}
@@ -0,0 +1,126 @@
+package com.colin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockTimestepIntegratorTest {
+
+    //Keeps the bodies each partial force evaluation of a step was for, in order
+    private static class RecordingSystem extends StellarSystem {
+        final ArrayList<int[]> evaluations = new ArrayList<>();
+
+        RecordingSystem(long seed) {
+            super(seed);
+        }
+
+        void computeAccelerations(int[] targets, int count) {
+            evaluations.add(Arrays.copyOf(targets, count));
+            super.computeAccelerations(targets, count);
+        }
+    }
+
+    //A star with planets from close in to far out, so bodies spread over several levels
+    private static RecordingSystem system() {
+        RecordingSystem system = new RecordingSystem(9);
+        system.setParallel(false);
+        system.addBody(new Star(0, 0, system.getRandom()));
+        system.genPlanets(40, 600);
+        system.setIntegrator(new BlockTimestepIntegrator());
+        system.setTimestep(4);
+        return system;
+    }
+
+    private static int maxLevel(BodyStore bodies) {
+        int max = 0;
+        for(int i = 0; i < bodies.count; i++) {
+            max = Math.max(max, bodies.level[i]);
+        }
+        return max;
+    }
+
+    //Every step is split into 2^maxLevel ticks, each body is evaluated at the end of its own block, which is a
+    //power-of-two number of ticks long and starts on a multiple of its length, and all bodies meet at the end
+    @Test
+    void bodiesStayOnTheirBlocksAndMeetAtTheEndOfEachStep() {
+        RecordingSystem system = system();
+        BodyStore bodies = system.getStore();
+        boolean mixed = false;
+        for(int step = 0; step < 40; step++) {
+            int maxLevel = maxLevel(bodies);
+            int count = bodies.count;
+            int[] last = new int[count];
+            for(int i = 1; i < count; i++) {
+                mixed |= bodies.level[i] != bodies.level[0];
+            }
+            system.evaluations.clear();
+            system.update();
+
+            assertEquals(1 << maxLevel, system.evaluations.size(), "Ticks in step " + step);
+            for(int tick = 1; tick <= system.evaluations.size(); tick++) {
+                for(int i : system.evaluations.get(tick - 1)) {
+                    int block = tick - last[i];
+                    assertEquals(1, Integer.bitCount(block), "Block of body " + i + " in step " + step + " is " + block + " ticks");
+                    assertEquals(0, last[i] % block, "Block of body " + i + " in step " + step + " starts off its boundary");
+                    last[i] = tick;
+                }
+            }
+            int[] end = system.evaluations.get(system.evaluations.size() - 1).clone();
+            Arrays.sort(end);
+            int[] all = new int[count];
+            Arrays.setAll(all, i -> i);
+            assertArrayEquals(all, end, "Bodies not synchronised at the end of step " + step);
+        }
+        assertTrue(mixed, "Every body stayed on one level");
+    }
+
+    @Test
+    void levelsFollowTheAccelerations() {
+        RecordingSystem system = system();
+        system.step(10);
+        BodyStore bodies = system.getStore();
+        int closest = -1;
+        int farthest = -1;
+        for(int i = 1; i < bodies.count; i++) {
+            double r = Math.hypot(bodies.x[i] - bodies.x[0], bodies.y[i] - bodies.y[0]);
+            if(closest < 0 || r < Math.hypot(bodies.x[closest] - bodies.x[0], bodies.y[closest] - bodies.y[0])) {
+                closest = i;
+            }
+            if(farthest < 0 || r > Math.hypot(bodies.x[farthest] - bodies.x[0], bodies.y[farthest] - bodies.y[0])) {
+                farthest = i;
+            }
+        }
+        assertTrue(bodies.level[closest] >= bodies.level[farthest]);
+        for(int i = 0; i < bodies.count; i++) {
+            assertTrue(bodies.level[i] >= 0 && bodies.level[i] <= BlockTimestepIntegrator.MAX_LEVEL);
+        }
+    }
+
+    //With an accuracy no body needs a finer step for, every body stays on level 0 and it is plain leapfrog
+    @Test
+    void singleLevelIsLeapfrog() {
+        StellarSystem block = new StellarSystem(400, 13);
+        StellarSystem leapfrog = new StellarSystem(400, 13);
+        for(StellarSystem system : new StellarSystem[] {block, leapfrog}) {
+            system.setParallel(false);
+        }
+        block.setIntegrator(new BlockTimestepIntegrator(1e30, 1));
+        leapfrog.setIntegrator(new LeapfrogIntegrator());
+        block.step(50);
+        leapfrog.step(50);
+
+        BodyStore a = block.getStore();
+        BodyStore b = leapfrog.getStore();
+        assertEquals(0, maxLevel(a));
+        assertEquals(b.count, a.count);
+        for(int i = 0; i < a.count; i++) {
+            assertEquals(b.x[i], a.x[i], 1e-9 * Math.max(1, Math.abs(b.x[i])));
+            assertEquals(b.y[i], a.y[i], 1e-9 * Math.max(1, Math.abs(b.y[i])));
+        }
+    }
+}
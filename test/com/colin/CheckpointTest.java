@@ -0,0 +1,134 @@
+package com.colin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckpointTest {
+    @TempDir
+    Path directory;
+
+    //A stepped system with a star, planets and a non-default integrator, gravity mode and timestep
+    private static StellarSystem system() {
+        StellarSystem system = new StellarSystem(400, 42);
+        system.genPlanets(40, 400);
+        system.setParallel(false);
+        system.setGravityMode(GravityMode.BARNES_HUT);
+        system.setIntegrator(new VelocityVerletIntegrator());
+        system.setTimestep(0.5);
+        system.step(25);
+        return system;
+    }
+
+    @Test
+    void restoresBodiesAndSettings() throws IOException {
+        StellarSystem original = system();
+        Path path = directory.resolve("system.ckpt");
+        Checkpoint.capture(original).write(path);
+
+        StellarSystem restored = new StellarSystem();
+        Checkpoint.read(path).restore(restored);
+
+        assertEquals(original.getSteps(), restored.getSteps());
+        assertEquals(original.getTimestep(), restored.getTimestep());
+        assertSame(original.getGravityMode(), restored.getGravityMode());
+        assertSame(original.getIntegrator().getClass(), restored.getIntegrator().getClass());
+        BodyStore a = original.getStore();
+        BodyStore b = restored.getStore();
+        assertEquals(a.count, b.count);
+        for(int i = 0; i < a.count; i++) {
+            Body expected = a.views[i];
+            Body actual = b.views[i];
+            assertSame(expected.getClass(), actual.getClass());
+            assertEquals(a.x[i], b.x[i]);
+            assertEquals(a.y[i], b.y[i]);
+            assertEquals(a.vx[i], b.vx[i]);
+            assertEquals(a.vy[i], b.vy[i]);
+            assertEquals(a.mass[i], b.mass[i]);
+            assertEquals(a.radius[i], b.radius[i]);
+            assertEquals(a.level[i], b.level[i]);
+            assertEquals(expected.getDensity(), actual.getDensity());
+            assertEquals(expected.getChroma(), actual.getChroma());
+            assertEquals(expected.getPixelRadius(), actual.getPixelRadius());
+            assertEquals(Checkpoint.classificationOf(expected), Checkpoint.classificationOf(actual));
+            assertEquals(Checkpoint.tempOf(expected), Checkpoint.tempOf(actual));
+        }
+    }
+
+    @Test
+    void restoredSystemStepsLikeTheOriginal() throws IOException {
+        StellarSystem original = system();
+        Path path = directory.resolve("system.ckpt");
+        Checkpoint.capture(original).write(path);
+        StellarSystem restored = new StellarSystem();
+        Checkpoint.read(path).restore(restored);
+        restored.setParallel(false);
+
+        original.step(25);
+        restored.step(25);
+        assertEquals(original.getStore().count, restored.getStore().count);
+        int count = original.getStore().count;
+        assertArrayEquals(Arrays.copyOf(original.getStore().x, count), Arrays.copyOf(restored.getStore().x, count), 1e-9);
+        assertArrayEquals(Arrays.copyOf(original.getStore().y, count), Arrays.copyOf(restored.getStore().y, count), 1e-9);
+    }
+
+    @Test
+    void rejectsUnknownIntegrator() throws IOException {
+        Path path = directory.resolve("system.ckpt");
+        Checkpoint.capture(system()).write(path);
+        overwrite(path, 29, (byte)Checkpoint.INTEGRATORS);
+        assertThrows(IOException.class, () -> Checkpoint.read(path));
+    }
+
+    @Test
+    void rejectsInvalidTimestep() throws IOException {
+        Path path = directory.resolve("system.ckpt");
+        for(double timestep : new double[] {0, -1, Double.NaN}) {
+            Checkpoint.capture(system()).write(path);
+            overwrite(path, 20, timestep);
+            assertThrows(IOException.class, () -> Checkpoint.read(path));
+        }
+    }
+
+    @Test
+    void rejectsUnknownGravityMode() throws IOException {
+        Path path = directory.resolve("system.ckpt");
+        Checkpoint.capture(system()).write(path);
+        overwrite(path, 28, (byte)-1);
+        assertThrows(IOException.class, () -> Checkpoint.read(path));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path path = directory.resolve("system.ckpt");
+        Checkpoint.capture(system()).write(path);
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        assertThrows(IOException.class, () -> Checkpoint.read(path));
+    }
+
+    private static void overwrite(Path path, long position, byte value) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {value}), position);
+        }
+    }
+
+    private static void overwrite(Path path, long position, double value) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(0, value), position);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.colin;
+
+import org.junit.jupiter.api.Test;
+import processing.core.PVector;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollisionResolverTest {
+
+    //A body of the given pixel radius, the store holds radius in km
+    private static Body body(double mass, int pixelRadius, double x, double y, double vx, double vy) {
+        Body body = new Body(mass, 1, (double)pixelRadius * StellarPhysics.PIXEL_UNIT, new PVector((float)vx, (float)vy), new PVector());
+        body.setPos(x, y);
+        return body;
+    }
+
+    private static double[] totals(BodyStore bodies) {
+        double mass = 0;
+        double px = 0;
+        double py = 0;
+        for(int i = 0; i < bodies.count; i++) {
+            mass += bodies.mass[i];
+            px += bodies.mass[i] * bodies.vx[i];
+            py += bodies.mass[i] * bodies.vy[i];
+        }
+        return new double[] {mass, px, py};
+    }
+
+    private static void assertConserved(double[] before, double[] after) {
+        assertEquals(before[0], after[0], before[0] * 1e-12, "Mass");
+        assertEquals(before[1], after[1], Math.abs(before[0]) * 1e-12, "Momentum x");
+        assertEquals(before[2], after[2], Math.abs(before[0]) * 1e-12, "Momentum y");
+    }
+
+    @Test
+    void mergeConservesMassAndMomentum() {
+        BodyStore bodies = new BodyStore(2);
+        Body heavy = body(3e24, 10, 0, 0, 1, -2);
+        Body light = body(1e24, 4, 5, 0, -3, 4);
+        bodies.add(heavy);
+        bodies.add(light);
+        double[] before = totals(bodies);
+        String info = heavy.getInfo();
+
+        ArrayList<Body> absorbed = new ArrayList<>();
+        int merged = new CollisionResolver().resolve(bodies, (survivor, body) -> {
+            assertSame(heavy, survivor);
+            absorbed.add(body);
+        });
+
+        assertEquals(1, merged);
+        assertEquals(1, bodies.count);
+        assertSame(light, absorbed.get(0));
+        assertSame(heavy, bodies.views[0]);
+        assertConserved(before, totals(bodies));
+        assertEquals(heavy.toString(), heavy.getInfo());
+        assertFalse(info.equals(heavy.getInfo()), "Info text kept from before the merge");
+        //Centre of mass, and the volumes add
+        assertEquals(1.25, bodies.x[0], 1e-12);
+        assertEquals(Math.cbrt(Math.pow(10.0 * StellarPhysics.PIXEL_UNIT, 3) + Math.pow(4.0 * StellarPhysics.PIXEL_UNIT, 3)), bodies.radius[0], 1e-6);
+    }
+
+    @Test
+    void chainedMergesConserveMassAndMomentum() {
+        Random random = new Random(4);
+        BodyStore bodies = new BodyStore(16);
+        for(int i = 0; i < 500; i++) {
+            bodies.add(body(1e20 + random.nextDouble() * 1e24, 1 + random.nextInt(8), random.nextGaussian() * 150, random.nextGaussian() * 150, random.nextGaussian(), random.nextGaussian()));
+        }
+        double[] before = totals(bodies);
+        int count = bodies.count;
+
+        int merged = new CollisionResolver().resolve(bodies, (survivor, body) -> { });
+
+        assertTrue(merged > 0, "No collisions to merge");
+        assertEquals(count - merged, bodies.count);
+        assertConserved(before, totals(bodies));
+    }
+
+    //A star larger than LARGE_CELLS hash cells is checked outside the hash, it must still find every centre inside it
+    @Test
+    void oversizedBodiesFindEveryCentreInside() {
+        Random random = new Random(5);
+        BodyStore bodies = new BodyStore(16);
+        Body star = body(2e30, 1000, 0, 0, 0, 0);
+        bodies.add(star);
+        int inside = 0;
+        for(int i = 0; i < 300; i++) {
+            double x = (random.nextDouble() * 2 - 1) * 3000;
+            double y = (random.nextDouble() * 2 - 1) * 3000;
+            Body planet = body(1e22, 1, x, y, 0, 0);
+            bodies.add(planet);
+            if(StellarPhysics.pointInsideBody(x, y, star)) {
+                inside++;
+            }
+        }
+        assertTrue(inside > 0);
+        double[] before = totals(bodies);
+
+        ArrayList<Body> absorbed = new ArrayList<>();
+        new CollisionResolver().resolve(bodies, (survivor, body) -> absorbed.add(body));
+
+        assertFalse(absorbed.contains(star));
+        assertTrue(absorbed.size() >= inside);
+        for(int i = 0; i < bodies.count; i++) {
+            assertTrue(bodies.views[i] == star || !StellarPhysics.pointInsideBody(bodies.x[i], bodies.y[i], star), "Centre left inside the star");
+        }
+        assertConserved(before, totals(bodies));
+    }
+
+    @Test
+    void separateBodiesDoNotMerge() {
+        BodyStore bodies = new BodyStore(2);
+        bodies.add(body(1e24, 5, 0, 0, 0, 0));
+        bodies.add(body(1e24, 5, 5, 0, 0, 0));
+        assertEquals(0, new CollisionResolver().resolve(bodies, (survivor, body) -> { }));
+        assertEquals(2, bodies.count);
+    }
+}
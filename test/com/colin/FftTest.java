@@ -0,0 +1,112 @@
+package com.colin;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FftTest {
+    private static final double TOLERANCE = 1e-9;
+
+    private static double[] random(int n, Random random) {
+        double[] values = new double[n];
+        for(int i = 0; i < n; i++) {
+            values[i] = random.nextDouble() * 2 - 1;
+        }
+        return values;
+    }
+
+    //O(n^2) DFT with the same sign convention, e^(-2 pi i jk / n) forward and unscaled going back
+    private static double[][] dft(double[] re, double[] im, int offset, int n, boolean inverse) {
+        double[][] out = new double[2][n];
+        double sign = inverse ? 1 : -1;
+        for(int k = 0; k < n; k++) {
+            for(int j = 0; j < n; j++) {
+                double angle = sign * 2 * Math.PI * ((long)j * k % n) / n;
+                out[0][k] += re[offset + j] * Math.cos(angle) - im[offset + j] * Math.sin(angle);
+                out[1][k] += re[offset + j] * Math.sin(angle) + im[offset + j] * Math.cos(angle);
+            }
+        }
+        return out;
+    }
+
+    @Test
+    void matchesNaiveDft() {
+        Random random = new Random(1);
+        for(int n = 2; n <= 256; n *= 2) {
+            for(boolean inverse : new boolean[] {false, true}) {
+                double[] re = random(n + 3, random);
+                double[] im = random(n + 3, random);
+                double[][] expected = dft(re, im, 3, n, inverse);
+                new Fft(n).transform(re, im, 3, inverse);
+                for(int k = 0; k < n; k++) {
+                    assertEquals(expected[0][k], re[3 + k], TOLERANCE * n, "re of bin " + k + " of " + n);
+                    assertEquals(expected[1][k], im[3 + k], TOLERANCE * n, "im of bin " + k + " of " + n);
+                }
+            }
+        }
+    }
+
+    @Test
+    void transform2dMatchesNaiveDft() {
+        int n = 16;
+        Random random = new Random(2);
+        double[] re = random(n * n, random);
+        double[] im = random(n * n, random);
+        //Rows then columns, each a 1D DFT
+        double[] expectedRe = re.clone();
+        double[] expectedIm = im.clone();
+        for(int r = 0; r < n; r++) {
+            double[][] row = dft(expectedRe, expectedIm, r * n, n, false);
+            System.arraycopy(row[0], 0, expectedRe, r * n, n);
+            System.arraycopy(row[1], 0, expectedIm, r * n, n);
+        }
+        for(int c = 0; c < n; c++) {
+            double[] columnRe = new double[n];
+            double[] columnIm = new double[n];
+            for(int r = 0; r < n; r++) {
+                columnRe[r] = expectedRe[r * n + c];
+                columnIm[r] = expectedIm[r * n + c];
+            }
+            double[][] column = dft(columnRe, columnIm, 0, n, false);
+            for(int r = 0; r < n; r++) {
+                expectedRe[r * n + c] = column[0][r];
+                expectedIm[r * n + c] = column[1][r];
+            }
+        }
+
+        new Fft(n).transform2d(re, im, n, false);
+        for(int i = 0; i < n * n; i++) {
+            assertEquals(expectedRe[i], re[i], TOLERANCE * n * n, "re of cell " + i);
+            assertEquals(expectedIm[i], im[i], TOLERANCE * n * n, "im of cell " + i);
+        }
+    }
+
+    //The mesh only fills its first rows and only reads its first rows back, the rest must not matter
+    @Test
+    void transform2dRoundTripsPartialRows() {
+        int n = 32;
+        int rows = 12;
+        Random random = new Random(3);
+        double[] re = new double[n * n];
+        double[] im = new double[n * n];
+        double[] input = random(rows * n, random);
+        System.arraycopy(input, 0, re, 0, input.length);
+
+        Fft fft = new Fft(n);
+        fft.transform2d(re, im, rows, false);
+        fft.transform2d(re, im, rows, true);
+        for(int i = 0; i < rows * n; i++) {
+            assertEquals(input[i], re[i], TOLERANCE, "re of cell " + i);
+            assertEquals(0, im[i], TOLERANCE, "im of cell " + i);
+        }
+    }
+
+    @Test
+    void rejectsSizesThatAreNotPowersOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new Fft(24));
+        assertThrows(IllegalArgumentException.class, () -> new Fft(1));
+    }
+}
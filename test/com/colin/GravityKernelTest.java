@@ -0,0 +1,89 @@
+package com.colin;
+
+import org.junit.jupiter.api.Test;
+import processing.core.PVector;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GravityKernelTest {
+    //Kernels sum in different orders, so they are compared relative to the largest acceleration
+    private static final double TOLERANCE = 1e-11;
+
+    //Body counts that leave a different tail after the last full vector for any lane count up to 8
+    private static final int[] COUNTS = {2, 3, 7, 8, 9, 37, 256};
+
+    private static BodyStore bodies(int count, long seed) {
+        Random random = new Random(seed);
+        BodyStore bodies = new BodyStore(count);
+        for(int i = 0; i < count; i++) {
+            bodies.add(new Body(1e20 + random.nextDouble() * 1e24, 1, 1000, new PVector(), new PVector()));
+            bodies.x[i] = random.nextGaussian() * 500;
+            bodies.y[i] = random.nextGaussian() * 500;
+        }
+        return bodies;
+    }
+
+    private static GravityKernel vector() {
+        assumeTrue(ModuleLayer.boot().findModule(GravityKernel.VECTOR_MODULE).isPresent(), "Run with --add-modules " + GravityKernel.VECTOR_MODULE);
+        assumeTrue(GravityKernel.PREFERRED != GravityKernel.SCALAR, "No SIMD lanes for doubles");
+        return GravityKernel.PREFERRED;
+    }
+
+    private static void assertAgree(BodyStore expected, BodyStore actual) {
+        double scale = 0;
+        for(int i = 0; i < expected.count; i++) {
+            scale = Math.max(scale, Math.hypot(expected.ax[i], expected.ay[i]));
+        }
+        for(int i = 0; i < expected.count; i++) {
+            assertEquals(expected.ax[i], actual.ax[i], scale * TOLERANCE, "ax of body " + i + " of " + expected.count);
+            assertEquals(expected.ay[i], actual.ay[i], scale * TOLERANCE, "ay of body " + i + " of " + expected.count);
+        }
+    }
+
+    @Test
+    void pullsAgree() {
+        GravityKernel vector = vector();
+        for(double softening : new double[] {0, 5}) {
+            for(int count : COUNTS) {
+                BodyStore scalar = bodies(count, count);
+                BodyStore simd = bodies(count, count);
+                for(int i = 0; i < count; i++) {
+                    GravityKernel.SCALAR.accumulatePulls(scalar, i, softening * softening);
+                    vector.accumulatePulls(simd, i, softening * softening);
+                }
+                assertAgree(scalar, simd);
+            }
+        }
+    }
+
+    @Test
+    void pairsAgree() {
+        GravityKernel vector = vector();
+        for(double softening : new double[] {0, 5}) {
+            for(int count : COUNTS) {
+                BodyStore scalar = bodies(count, count);
+                BodyStore simd = bodies(count, count);
+                GravityKernel.SCALAR.accumulatePairs(scalar, softening * softening);
+                vector.accumulatePairs(simd, softening * softening);
+                assertAgree(scalar, simd);
+            }
+        }
+    }
+
+    //Pairs apply each force to both bodies once, so they must add up to what every body pulls on its own
+    @Test
+    void pairsMatchPulls() {
+        for(int count : COUNTS) {
+            BodyStore pulls = bodies(count, count);
+            BodyStore pairs = bodies(count, count);
+            for(int i = 0; i < count; i++) {
+                GravityKernel.SCALAR.accumulatePulls(pulls, i, 0);
+            }
+            GravityKernel.SCALAR.accumulatePairs(pairs, 0);
+            assertAgree(pulls, pairs);
+        }
+    }
+}
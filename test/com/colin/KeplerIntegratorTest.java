@@ -0,0 +1,122 @@
+package com.colin;
+
+import org.junit.jupiter.api.Test;
+import processing.core.PVector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeplerIntegratorTest {
+    private static final double STAR_MASS = 2e30;
+    private static final double MU = StellarPhysics.PIXEL_GRAVITY * STAR_MASS;
+    private static final double RADIUS = 200;
+    private static final int STEPS_PER_ORBIT = 400;
+
+    //A star at rest at the origin and a test body RADIUS px out on the x axis moving along y at speed. Both have
+    //no pixel radius so they never collide.
+    private static StellarSystem twoBody(double speed) {
+        StellarSystem system = new StellarSystem();
+        system.setParallel(false);
+        system.addBody(new Body(STAR_MASS, 1, 0, new PVector(), new PVector()));
+        system.addBody(new Body(1, 1, 0, new PVector(0, (float)speed), new PVector((float)RADIUS, 0)));
+        system.setIntegrator(new KeplerIntegrator());
+        return system;
+    }
+
+    //Orbital energy per unit mass of the body relative to the star
+    private static double energy(BodyStore bodies) {
+        double dx = bodies.x[1] - bodies.x[0];
+        double dy = bodies.y[1] - bodies.y[0];
+        double dvx = bodies.vx[1] - bodies.vx[0];
+        double dvy = bodies.vy[1] - bodies.vy[0];
+        return (dvx * dvx + dvy * dvy) / 2 - MU / Math.hypot(dx, dy);
+    }
+
+    private static double angularMomentum(BodyStore bodies) {
+        double dx = bodies.x[1] - bodies.x[0];
+        double dy = bodies.y[1] - bodies.y[0];
+        return dx * (bodies.vy[1] - bodies.vy[0]) - dy * (bodies.vx[1] - bodies.vx[0]);
+    }
+
+    //Steps one period of an eccentric orbit and checks the body is back where it started
+    private static void assertClosesAfterOnePeriod(StellarSystem system) {
+        BodyStore bodies = system.getStore();
+        //The body was placed through a float PVector, so the period comes from what the store holds
+        double startSpeed = bodies.vy[1];
+        double a = 1 / (2 / RADIUS - startSpeed * startSpeed / MU);
+        double period = 2 * Math.PI * Math.sqrt(a * a * a / MU);
+        system.setTimestep(period / STEPS_PER_ORBIT);
+        double e0 = energy(bodies);
+        double h0 = angularMomentum(bodies);
+        for(int i = 0; i < STEPS_PER_ORBIT; i++) {
+            system.update();
+            assertEquals(e0, energy(bodies), Math.abs(e0) * 1e-9, "Energy after step " + i);
+            assertEquals(h0, angularMomentum(bodies), Math.abs(h0) * 1e-9, "Angular momentum after step " + i);
+        }
+        assertEquals(RADIUS, bodies.x[1] - bodies.x[0], RADIUS * 1e-7);
+        assertEquals(0, bodies.y[1] - bodies.y[0], RADIUS * 1e-7);
+        assertEquals(startSpeed, bodies.vy[1] - bodies.vy[0], startSpeed * 1e-7);
+    }
+
+    @Test
+    void eccentricOrbitClosesAfterOnePeriod() {
+        double speed = 0.8 * Math.sqrt(MU / RADIUS);
+        assertClosesAfterOnePeriod(twoBody(speed));
+    }
+
+    //The star is no source during kicks, so softening and the approximate solvers must not perturb the orbit
+    @Test
+    void solverErrorDoesNotLeakIntoTheOrbit() {
+        double speed = 1.2 * Math.sqrt(MU / RADIUS);
+        for(GravityMode mode : GravityMode.values()) {
+            StellarSystem system = twoBody(speed);
+            system.setGravityMode(mode);
+            system.setSoftening(10);
+            assertClosesAfterOnePeriod(system);
+        }
+    }
+
+    @Test
+    void hyperbolicOrbitKeepsEnergy() {
+        StellarSystem system = twoBody(1.5 * Math.sqrt(2 * MU / RADIUS));
+        BodyStore bodies = system.getStore();
+        system.setTimestep(10);
+        double e0 = energy(bodies);
+        double h0 = angularMomentum(bodies);
+        assertTrue(e0 > 0);
+        system.step(200);
+        assertEquals(e0, energy(bodies), e0 * 1e-9);
+        assertEquals(h0, angularMomentum(bodies), Math.abs(h0) * 1e-9);
+        assertTrue(Math.hypot(bodies.x[1], bodies.y[1]) > 10 * RADIUS);
+    }
+
+    @Test
+    void kicksComeEveryPerturbationInterval() {
+        StellarSystem system = twoBody(Math.sqrt(MU / RADIUS));
+        KeplerIntegrator integrator = new KeplerIntegrator(5, 0);
+        system.setIntegrator(integrator);
+        system.step(50);
+        assertEquals(10, integrator.getKicks());
+    }
+
+    //A pair that never separates must bring kicks forward, but no more than every interval / ENCOUNTER_DIVISOR steps
+    @Test
+    void closeEncountersKickEarlyButBounded() {
+        StellarSystem system = twoBody(Math.sqrt(MU / RADIUS));
+        system.addBody(new Body(1, 1, 0, new PVector(0, (float)Math.sqrt(MU / RADIUS)), new PVector((float)RADIUS, 5)));
+        KeplerIntegrator integrator = new KeplerIntegrator(8, 20);
+        system.setIntegrator(integrator);
+        system.step(64);
+        assertEquals(64 / (8 / KeplerIntegrator.ENCOUNTER_DIVISOR), integrator.getKicks());
+    }
+
+    @Test
+    void stumpffFunctionsAreContinuousAcrossTheSeriesSwitch() {
+        for(double z : new double[] {-1e-3, 1e-3}) {
+            double below = Math.nextDown(z);
+            double above = Math.nextUp(z);
+            assertEquals(KeplerIntegrator.stumpffC(below), KeplerIntegrator.stumpffC(above), 1e-12);
+            assertEquals(KeplerIntegrator.stumpffS(below), KeplerIntegrator.stumpffS(above), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.colin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrajectoryRecorderTest {
+    private static final double TOLERANCE = 1.0 / TrajectoryRecorder.QUANTUM;
+
+    @TempDir
+    Path directory;
+
+    //Positions of every recorded frame, as the system had them
+    private final ArrayList<double[]> xs = new ArrayList<>();
+    private final ArrayList<double[]> ys = new ArrayList<>();
+    private final ArrayList<Long> steps = new ArrayList<>();
+
+    private void remember(StellarSystem system) {
+        BodyStore bodies = system.getStore();
+        xs.add(Arrays.copyOf(bodies.x, bodies.count));
+        ys.add(Arrays.copyOf(bodies.y, bodies.count));
+        steps.add(system.getSteps());
+    }
+
+    //Records steps of a crowded system, so bodies merge and the deltas carry deaths and changes
+    private Path record(StellarSystem system, int steps, int keyframeInterval) throws IOException {
+        Path path = directory.resolve("run.traj");
+        TrajectoryRecorder recorder = new TrajectoryRecorder(path, system, 1, keyframeInterval);
+        remember(system);
+        system.addObserver(recorder);
+        system.addObserver(new SystemObserver() {
+            public void stepped(StellarSystem s) {
+                remember(s);
+            }
+        });
+        system.step(steps);
+        recorder.close();
+        assertEquals(steps + 1, recorder.getFrames());
+        return path;
+    }
+
+    private void assertFrame(TrajectoryReader reader, Snapshot snapshot, int frame) {
+        reader.fill(snapshot);
+        assertEquals(frame, reader.getFrame());
+        assertEquals((long)steps.get(frame), reader.getStep());
+        double[] x = xs.get(frame);
+        double[] y = ys.get(frame);
+        assertEquals(x.length, snapshot.count);
+        for(int i = 0; i < x.length; i++) {
+            assertEquals(x[i], snapshot.x[i], Math.max(TOLERANCE, Math.ulp((float)x[i])), "x of body " + i + " in frame " + frame);
+            assertEquals(y[i], snapshot.y[i], Math.max(TOLERANCE, Math.ulp((float)y[i])), "y of body " + i + " in frame " + frame);
+        }
+    }
+
+    @Test
+    void replaysEveryFrame() throws IOException {
+        StellarSystem system = new StellarSystem(300, 7);
+        system.genPlanets(60, 150);
+        int before = system.getStore().count;
+        Path path = record(system, 200, 16);
+        assertTrue(system.getStore().count < before, "No merges to record");
+
+        TrajectoryReader reader = new TrajectoryReader(path);
+        Snapshot snapshot = new Snapshot();
+        assertEquals(xs.size(), reader.getFrameCount());
+        for(int frame = 0; frame < reader.getFrameCount(); frame++) {
+            if(frame > 0) {
+                assertTrue(reader.next());
+            }
+            assertFrame(reader, snapshot, frame);
+        }
+        assertFalse(reader.next());
+        reader.close();
+    }
+
+    @Test
+    void seeksBackAndForth() throws IOException {
+        StellarSystem system = new StellarSystem(300, 11);
+        system.genPlanets(30, 200);
+        Path path = record(system, 100, 8);
+
+        TrajectoryReader reader = new TrajectoryReader(path);
+        Snapshot snapshot = new Snapshot();
+        for(int frame : new int[] {57, 3, 100, 64, 63, 0, 17}) {
+            reader.seek(frame);
+            assertFrame(reader, snapshot, frame);
+        }
+        reader.close();
+    }
+
+    @Test
+    void keepsPositionsBeyondIntRange() throws IOException {
+        StellarSystem system = new StellarSystem(300, 5);
+        BodyStore bodies = system.getStore();
+        //Well past the 2^31 / QUANTUM pixels an int quantisation could hold
+        bodies.views[bodies.count - 1].setPos(4e9, -7.5e10);
+        bodies.views[bodies.count - 1].setVel(1e6, -2e6);
+        Path path = record(system, 20, 4);
+
+        TrajectoryReader reader = new TrajectoryReader(path);
+        Snapshot snapshot = new Snapshot();
+        reader.seek(reader.getFrameCount() - 1);
+        assertFrame(reader, snapshot, reader.getFrameCount() - 1);
+        reader.close();
+    }
+
+    @Test
+    void rebuildsBodiesFromTheirProperties() throws IOException {
+        StellarSystem system = new StellarSystem(300, 3);
+        Body star = system.getStore().views[0];
+        Path path = record(system, 1, 4);
+
+        TrajectoryReader reader = new TrajectoryReader(path);
+        Snapshot snapshot = new Snapshot();
+        reader.fill(snapshot);
+        Body replayed = snapshot.views[0];
+        assertSame(star.getClass(), replayed.getClass());
+        assertEquals(star.getMass(), replayed.getMass());
+        assertEquals(star.getRadius(), replayed.getRadius());
+        assertEquals(star.getChroma(), replayed.getChroma());
+        assertEquals(Checkpoint.classificationOf(star), Checkpoint.classificationOf(replayed));
+        reader.close();
+    }
+}